@@ -0,0 +1,20 @@
+# Rules of the profile build type only: plain release builds are not minified.
+
+# Strips VERBOSE and DEBUG logging: the calls go, and so does any message building only they
+# used.
+-assumenosideeffects class com.example.android.common.logger.Log {
+    public static void v(...);
+    public static void d(...);
+}
+
+# Inflated from activity_main.xml by class name.
+-keep public class com.example.android.basicgesturedetect.StackFrameLayout {
+    public <init>(android.content.Context, android.util.AttributeSet);
+    public <init>(android.content.Context, android.util.AttributeSet, int);
+}
+
+# Fragments are created by class name, from android:name in layouts and again when the
+# activity is recreated, through their public no-argument constructor.
+-keep public class * extends android.support.v4.app.Fragment {
+    public <init>();
+}
@@ -0,0 +1,42 @@
+package com.example.android.basicgesturedetect;
+
+public class CMath
+{
+    public static float easeOutBack(float from, float to, float alpha)
+    {
+        final float c1 = 1.70158f;
+        final float c2 = c1 + 1.0f;
+        float r = (float) (1.0f + c2 * Math.pow(alpha - 1.0f, 3) + c1 * Math.pow(alpha - 1.0f, 2));
+        float d = to - from;
+        return from + d * r;
+    }
+    public static float easeInOutBack(float from, float to, float alpha)
+    {
+        final float c1 = 1.70158f;
+        final float c2 = c1 * 1.525f;
+        float alpha2 = alpha*2.0f;
+        float r = (float) (alpha < 0.5f
+                ? (Math.pow(alpha2, 2) * ((c2 + 1.0f) * alpha2 - c2)) / 2.0f
+                : (Math.pow(alpha2 - 2.0f, 2) * ((c2 + 1) * (alpha2 - 2.0f) + c2) + 2.0f) / 2.0f);
+        float d = to - from;
+        return from + d * r;
+    }
+
+    public static float lerp(float from, float to, float alpha)
+    {
+        return from + (to - from)*alpha;
+    }
+    public static float lerpInvert(float from, float to, float alpha)
+    {
+        return to + (from - to)*(1.0f-alpha);
+    }
+
+    public static float clamp(float min, float max, float alpha)
+    {
+        return Math.min(max, Math.max(min, alpha));
+    }
+    public static int clamp(int min, int max, int alpha)
+    {
+        return Math.min(max, Math.max(min, alpha));
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.android.basicgesturedetect;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.drawable.Drawable;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.v4.content.ContextCompat;
+import android.util.LruCache;
+import android.widget.ImageView;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Process-wide cache of card artwork rasterized to bitmaps.
+ *
+ * <p>Each drawable is rasterized once per target width on a background thread, keeping its
+ * intrinsic aspect ratio, and the same Bitmap is handed to every ImageView that shows it. The
+ * cache is bounded in bytes and evicts the least recently used artwork. Every method but the
+ * rasterization itself runs on the main thread.</p>
+ */
+public class CardArtworkCache
+{
+    /** Share of the heap the cache may hold. */
+    private static final int HEAP_FRACTION = 8;
+
+    private static CardArtworkCache sInstance;
+
+    private final Context mContext;
+    private final LruCache<Long, Bitmap> mBitmaps;
+    private final ExecutorService mExecutor;
+    private final Handler mMainHandler;
+    // Views waiting for a rasterization in flight, by key.
+    private final HashMap<Long, ArrayList<ImageView>> mPending;
+    // The artwork each view was last asked to show; older results are not applied.
+    private final WeakHashMap<ImageView, Long> mRequests;
+
+    public static CardArtworkCache get(Context context)
+    {
+        if(sInstance == null)
+        {
+            sInstance = new CardArtworkCache(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private CardArtworkCache(Context context)
+    {
+        mContext = context;
+        int maxBytes = (int) Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / HEAP_FRACTION);
+        mBitmaps = new LruCache<Long, Bitmap>(maxBytes)
+        {
+            @Override
+            protected int sizeOf(Long key, Bitmap bitmap)
+            {
+                return bitmap.getByteCount();
+            }
+        };
+        mExecutor = Executors.newSingleThreadExecutor();
+        mMainHandler = new Handler(Looper.getMainLooper());
+        mPending = new HashMap<>();
+        mRequests = new WeakHashMap<>();
+    }
+
+    private static long key(int resId, int width)
+    {
+        return ((long) resId << 32) | (width & 0xffffffffL);
+    }
+
+    /**
+     * Shows {@code resId} rasterized at {@code width} pixels in {@code view}: right away when
+     * cached, otherwise once the background rasterization is done.
+     */
+    public void load(ImageView view, int resId, int width)
+    {
+        Long key = key(resId, width);
+        mRequests.put(view, key);
+        Bitmap bitmap = mBitmaps.get(key);
+        if(bitmap != null)
+        {
+            view.setImageBitmap(bitmap);
+            return;
+        }
+        // Keeps the card from showing other artwork while it waits.
+        view.setImageDrawable(null);
+        request(key, resId, width).add(view);
+    }
+
+    /** Rasterizes the given artwork ahead of time, so cards are bound from the cache. */
+    public void prewarm(int[] resIds, int width)
+    {
+        for(int resId : resIds)
+        {
+            Long key = key(resId, width);
+            if(mBitmaps.get(key) == null)
+            {
+                request(key, resId, width);
+            }
+        }
+    }
+
+    public void evictAll()
+    {
+        mBitmaps.evictAll();
+    }
+
+    private ArrayList<ImageView> request(final Long key, final int resId, final int width)
+    {
+        ArrayList<ImageView> waiting = mPending.get(key);
+        if(waiting != null)
+        {
+            return waiting;
+        }
+        waiting = new ArrayList<>();
+        mPending.put(key, waiting);
+        mExecutor.execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                final Bitmap bitmap = rasterize(resId, width);
+                mMainHandler.post(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        deliver(key, bitmap);
+                    }
+                });
+            }
+        });
+        return waiting;
+    }
+
+    private Bitmap rasterize(int resId, int width)
+    {
+        Drawable drawable = ContextCompat.getDrawable(mContext, resId);
+        if(drawable == null || width <= 0)
+        {
+            return null;
+        }
+        int intrinsicWidth = drawable.getIntrinsicWidth();
+        int intrinsicHeight = drawable.getIntrinsicHeight();
+        int height = intrinsicWidth > 0 && intrinsicHeight > 0
+                ? Math.round((float) width * intrinsicHeight / intrinsicWidth) : width;
+        Bitmap bitmap = Bitmap.createBitmap(width, Math.max(1, height), Bitmap.Config.ARGB_8888);
+        drawable.setBounds(0, 0, width, height);
+        drawable.draw(new Canvas(bitmap));
+        return bitmap;
+    }
+
+    private void deliver(Long key, Bitmap bitmap)
+    {
+        ArrayList<ImageView> waiting = mPending.remove(key);
+        if(bitmap == null)
+        {
+            return;
+        }
+        mBitmaps.put(key, bitmap);
+        if(waiting == null)
+        {
+            return;
+        }
+        for(int i = 0;i < waiting.size();i++)
+        {
+            ImageView view = waiting.get(i);
+            // The view may have been bound to other artwork since it asked for this one.
+            if(key.equals(mRequests.get(view)))
+            {
+                view.setImageBitmap(bitmap);
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.android.basicgesturedetect;
+
+/**
+ * Cascade math of {@link StackLayoutSolver}, free of any android.* dependency.
+ *
+ * <p>Items sit in slots one below the other, {@code itemHeight} apart. Around the camera they
+ * fan out into a cascade {@code cascadeHeight} high: the items above the pivot are pulled
+ * down toward the camera, less the further above it they are. {@link #solve} returns how far
+ * each item is drawn from its slot, meant for translationY, so scrolling never changes the
+ * layout. The camera bounds only depend on the item count and sizes; they are computed once
+ * by {@link #setup} instead of on every scroll.</p>
+ *
+ * <p>The pull of item {@code i} is {@code (pivot - i) / pivot * cascadeHeight}, linear in
+ * {@code i} once the camera is known, and so is its slot. {@link #solve} folds both into one
+ * slope per scroll, so an item costs a multiply-add and a max, with no division and nothing
+ * left to look up per item.</p>
+ */
+public class CascadeEngine
+{
+    private int mCount;
+    private float mItemHeight;
+    private float mCascadeHeight;
+    private float mCameraMin;
+    private float mCameraMax;
+
+    /**
+     * Precomputes the camera bounds.
+     *
+     * @return false if nothing changed since the last setup.
+     */
+    public boolean setup(int count, float itemHeight, float cascadeHeight)
+    {
+        if(count == mCount && itemHeight == mItemHeight && cascadeHeight == mCascadeHeight)
+        {
+            return false;
+        }
+        mCount = count;
+        mItemHeight = itemHeight;
+        mCascadeHeight = cascadeHeight;
+        mCameraMax = itemHeight * count - cascadeHeight;
+        mCameraMin = itemHeight / 2;
+        return true;
+    }
+
+    public int getCount()
+    {
+        return mCount;
+    }
+
+    public float getItemHeight()
+    {
+        return mItemHeight;
+    }
+
+    /** Keeps the camera between half an item and the end of the cascade; the top wins. */
+    public float clampCamera(float camera)
+    {
+        return Math.max(mCameraMin, Math.min(mCameraMax, camera));
+    }
+
+    /** Writes the offset of every item from its slot, for a clamped {@code camera}, to out. */
+    public void solve(float camera, float[] out)
+    {
+        float pivot = Math.max(0, camera / mItemHeight) + 1;
+        // target - slot = camera - cascadeHeight + i * (cascadeHeight / pivot - itemHeight)
+        float top = camera - mCascadeHeight;
+        float slope = mCascadeHeight / pivot - mItemHeight;
+        for(int i = 0;i < mCount;i++)
+        {
+            out[i] = Math.max(0, top + i * slope) - top;
+        }
+    }
+}
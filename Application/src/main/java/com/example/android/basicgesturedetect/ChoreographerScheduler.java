@@ -0,0 +1,32 @@
+package com.example.android.basicgesturedetect;
+
+import android.view.Choreographer;
+
+/**
+ * Drives a {@link FrameClock} from the display vsync. Must be used from a Looper thread,
+ * normally the main thread.
+ */
+public class ChoreographerScheduler implements FrameClock.Scheduler, Choreographer.FrameCallback
+{
+    private FrameClock mClock;
+
+    @Override
+    public long nanoTime()
+    {
+        // Choreographer frame times are on the System.nanoTime() time base.
+        return System.nanoTime();
+    }
+
+    @Override
+    public void requestFrame(FrameClock clock)
+    {
+        mClock = clock;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos)
+    {
+        mClock.doFrame(frameTimeNanos);
+    }
+}
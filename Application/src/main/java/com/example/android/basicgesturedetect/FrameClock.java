@@ -0,0 +1,153 @@
+package com.example.android.basicgesturedetect;
+
+/**
+ * A single frame clock shared by every animator of a solver.
+ *
+ * <p>Callbacks registered with {@link #add(Callback)} are ticked once per frame with a
+ * monotonic frame time in nanoseconds. The clock only asks its {@link Scheduler} for a
+ * new frame while at least one callback is registered, and dispatching a frame does not
+ * allocate. On a device the scheduler is backed by the Choreographer (see
+ * {@link ChoreographerScheduler}); on the JVM a test can pass its own scheduler and step
+ * frames by calling {@link #doFrame(long)} directly.</p>
+ */
+public class FrameClock
+{
+    public interface Callback
+    {
+        void onFrame(long frameTimeNanos);
+    }
+
+    public interface Scheduler
+    {
+        /** Returns the current time, on the same time base as the frame times. */
+        long nanoTime();
+
+        /** Asks for {@link FrameClock#doFrame(long)} to be called on the next frame. */
+        void requestFrame(FrameClock clock);
+    }
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    private Scheduler mScheduler;
+    private Callback[] mCallbacks;
+    private Callback[] mDispatching;
+    private int mCallbackCount;
+    private boolean mFrameRequested;
+    private long mFrameTimeNanos;
+
+    public FrameClock(Scheduler scheduler)
+    {
+        mScheduler = scheduler;
+        mCallbacks = new Callback[INITIAL_CAPACITY];
+        mDispatching = new Callback[INITIAL_CAPACITY];
+    }
+
+    public void setScheduler(Scheduler scheduler)
+    {
+        // A frame already requested from the previous scheduler is still delivered; the
+        // new scheduler is asked from the next request on.
+        mScheduler = scheduler;
+    }
+
+    public Scheduler getScheduler()
+    {
+        return mScheduler;
+    }
+
+    public long now()
+    {
+        return mScheduler.nanoTime();
+    }
+
+    /** Returns the time of the frame being (or last) dispatched. */
+    public long getFrameTimeNanos()
+    {
+        return mFrameTimeNanos;
+    }
+
+    public boolean isRunning()
+    {
+        return mCallbackCount > 0;
+    }
+
+    public void add(Callback callback)
+    {
+        if(indexOf(callback) >= 0)
+        {
+            return;
+        }
+        if(mCallbackCount == mCallbacks.length)
+        {
+            Callback[] grown = new Callback[mCallbacks.length * 2];
+            System.arraycopy(mCallbacks, 0, grown, 0, mCallbackCount);
+            // mDispatching may be in use by doFrame: it catches up on the next frame.
+            mCallbacks = grown;
+        }
+        mCallbacks[mCallbackCount++] = callback;
+        requestFrame();
+    }
+
+    public boolean contains(Callback callback)
+    {
+        return indexOf(callback) >= 0;
+    }
+
+    public void remove(Callback callback)
+    {
+        int index = indexOf(callback);
+        if(index < 0)
+        {
+            return;
+        }
+        mCallbackCount--;
+        System.arraycopy(mCallbacks, index + 1, mCallbacks, index, mCallbackCount - index);
+        mCallbacks[mCallbackCount] = null;
+    }
+
+    /**
+     * Ticks every registered callback. Callbacks may add or remove callbacks (including
+     * themselves) while being ticked; changes take effect from the next frame.
+     */
+    public void doFrame(long frameTimeNanos)
+    {
+        mFrameRequested = false;
+        mFrameTimeNanos = frameTimeNanos;
+        int count = mCallbackCount;
+        if(mDispatching.length < count)
+        {
+            mDispatching = new Callback[mCallbacks.length];
+        }
+        System.arraycopy(mCallbacks, 0, mDispatching, 0, count);
+        for(int i = 0;i < count;i++)
+        {
+            mDispatching[i].onFrame(frameTimeNanos);
+            mDispatching[i] = null;
+        }
+        if(mCallbackCount > 0)
+        {
+            requestFrame();
+        }
+    }
+
+    private void requestFrame()
+    {
+        if(mFrameRequested)
+        {
+            return;
+        }
+        mFrameRequested = true;
+        mScheduler.requestFrame(this);
+    }
+
+    private int indexOf(Callback callback)
+    {
+        for(int i = 0;i < mCallbackCount;i++)
+        {
+            if(mCallbacks[i] == callback)
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
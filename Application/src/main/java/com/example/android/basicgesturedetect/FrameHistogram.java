@@ -0,0 +1,94 @@
+package com.example.android.basicgesturedetect;
+
+/**
+ * Fixed-size histogram of durations in nanoseconds.
+ *
+ * <p>Bucket {@code k} counts durations in [2^k, 2^(k+1)) microseconds (bucket 0 also takes
+ * everything below 2us), so it covers 1us to about 8s with no allocation per sample.
+ * Percentiles are reported as the upper bound of the bucket they fall in.</p>
+ */
+public class FrameHistogram
+{
+    private static final int BUCKET_COUNT = 24;
+    private static final long NANOS_PER_MICRO = 1000;
+
+    private final long[] mBuckets = new long[BUCKET_COUNT];
+    private long mCount;
+    private long mSum;
+    private long mMax;
+
+    public void record(long nanos)
+    {
+        if(nanos < 0)
+        {
+            nanos = 0;
+        }
+        long micros = nanos / NANOS_PER_MICRO;
+        int bucket = micros <= 1 ? 0 : 63 - Long.numberOfLeadingZeros(micros);
+        mBuckets[Math.min(bucket, BUCKET_COUNT - 1)]++;
+        mCount++;
+        mSum += nanos;
+        if(nanos > mMax)
+        {
+            mMax = nanos;
+        }
+    }
+
+    public void reset()
+    {
+        for(int i = 0;i < BUCKET_COUNT;i++)
+        {
+            mBuckets[i] = 0;
+        }
+        mCount = 0;
+        mSum = 0;
+        mMax = 0;
+    }
+
+    public long getCount()
+    {
+        return mCount;
+    }
+
+    public long getMaxNanos()
+    {
+        return mMax;
+    }
+
+    public long getMeanNanos()
+    {
+        return mCount == 0 ? 0 : mSum / mCount;
+    }
+
+    /** Returns an upper bound of the {@code fraction} (0..1) percentile, in nanoseconds. */
+    public long getPercentileNanos(float fraction)
+    {
+        if(mCount == 0)
+        {
+            return 0;
+        }
+        long rank = (long) Math.ceil(fraction * mCount);
+        long seen = 0;
+        for(int i = 0;i < BUCKET_COUNT;i++)
+        {
+            seen += mBuckets[i];
+            if(seen >= Math.max(1, rank))
+            {
+                return Math.min(mMax, (2L << i) * NANOS_PER_MICRO);
+            }
+        }
+        return mMax;
+    }
+
+    /** Appends "n=.. mean=.. p50=.. p90=.. p99=.. max=.." with durations in microseconds. */
+    public StringBuilder appendTo(StringBuilder out)
+    {
+        out.append("n=").append(mCount)
+                .append(" mean=").append(getMeanNanos() / NANOS_PER_MICRO)
+                .append("us p50=").append(getPercentileNanos(0.5f) / NANOS_PER_MICRO)
+                .append("us p90=").append(getPercentileNanos(0.9f) / NANOS_PER_MICRO)
+                .append("us p99=").append(getPercentileNanos(0.99f) / NANOS_PER_MICRO)
+                .append("us max=").append(mMax / NANOS_PER_MICRO).append("us");
+        return out;
+    }
+}
@@ -0,0 +1,351 @@
+package com.example.android.basicgesturedetect;
+
+import java.util.ArrayList;
+
+/**
+ * Frame statistics of a solver, aggregated per transition.
+ *
+ * <p>Each {@link Transition} counts the frames of its current run and how many of them came
+ * late against the vsync budget, and keeps histograms of its per-frame update cost and of the
+ * {@code updateStack} time spent inside it. The solver-wide histograms take every
+ * {@code updateStack} call (scrolls included) and the time spent measuring and laying out the
+ * stack in frames that ran such passes at all, which the translationY render mode avoids.
+ * Recording never allocates; the {@link Listener} is handed the same
+ * Transition object at the end of every run.</p>
+ *
+ * <p>Touch latency runs from the event time of a touch that moved something to the first
+ * frame drawn after it. A gesture's latencies are complete on the first frame drawn after it
+ * ended; {@link #onDraw(long)} says when, so that they can be reported.</p>
+ */
+public class FrameStats
+{
+    /** A frame is late when it comes this many budgets after the previous one. */
+    private static final float LATE_FRAME_RATIO = 1.5f;
+    private static final long DEFAULT_FRAME_BUDGET = 16666667L; // 60Hz, in nanosecs
+    // Touches waiting for a frame; more than this between two frames are not recorded.
+    private static final int MAX_PENDING_TOUCHES = 32;
+
+    public interface Listener
+    {
+        /** Called when a run of {@code transition} ends, finished or interrupted. */
+        void onTransitionFinished(Transition transition);
+    }
+
+    public interface TouchLatencyListener
+    {
+        /** Called once the frames of a gesture have been drawn, with every latency so far. */
+        void onTouchLatency(FrameHistogram latency);
+    }
+
+    public static class Transition
+    {
+        private final FrameStats mOwner;
+        private final String mName;
+        private final FrameHistogram mUpdateCost = new FrameHistogram();
+        private final FrameHistogram mUpdateStackCost = new FrameHistogram();
+        private final FrameHistogram mFrameInterval = new FrameHistogram();
+        private long mRuns;
+        private long mTotalLateFrames;
+        private int mRunFrames;
+        private int mRunLateFrames;
+        private long mRunUpdateNanos;
+        private long mRunMaxUpdateNanos;
+        private boolean mRunInterrupted;
+        private long mLastFrameTime;
+        private boolean mHasLastFrame;
+
+        Transition(FrameStats owner, String name)
+        {
+            mOwner = owner;
+            mName = name;
+        }
+
+        public String getName()
+        {
+            return mName;
+        }
+
+        /** Frames rendered by the last (or current) run. */
+        public int getRunFrames()
+        {
+            return mRunFrames;
+        }
+
+        /** Frames of the last run that came late against the vsync budget. */
+        public int getRunLateFrames()
+        {
+            return mRunLateFrames;
+        }
+
+        public long getRunMeanUpdateNanos()
+        {
+            return mRunFrames == 0 ? 0 : mRunUpdateNanos / mRunFrames;
+        }
+
+        public long getRunMaxUpdateNanos()
+        {
+            return mRunMaxUpdateNanos;
+        }
+
+        /** Whether the last run was cut short, e.g. by a touch. */
+        public boolean isRunInterrupted()
+        {
+            return mRunInterrupted;
+        }
+
+        public long getRuns()
+        {
+            return mRuns;
+        }
+
+        public long getTotalLateFrames()
+        {
+            return mTotalLateFrames;
+        }
+
+        /** Per-frame cost of the transition's update, over every run. */
+        public FrameHistogram getUpdateCost()
+        {
+            return mUpdateCost;
+        }
+
+        /** Time spent in updateStack from within the transition, over every run. */
+        public FrameHistogram getUpdateStackCost()
+        {
+            return mUpdateStackCost;
+        }
+
+        /** Time between consecutive frames of a run, over every run. */
+        public FrameHistogram getFrameInterval()
+        {
+            return mFrameInterval;
+        }
+
+        public void beginRun()
+        {
+            mRunFrames = 0;
+            mRunLateFrames = 0;
+            mRunUpdateNanos = 0;
+            mRunMaxUpdateNanos = 0;
+            mRunInterrupted = false;
+            mHasLastFrame = false;
+        }
+
+        public void beginFrame(long frameTimeNanos)
+        {
+            if(mHasLastFrame && frameTimeNanos > mLastFrameTime)
+            {
+                long interval = frameTimeNanos - mLastFrameTime;
+                mFrameInterval.record(interval);
+                if(interval > mOwner.mFrameBudget * LATE_FRAME_RATIO)
+                {
+                    mRunLateFrames++;
+                    mTotalLateFrames++;
+                }
+            }
+            mLastFrameTime = frameTimeNanos;
+            mHasLastFrame = true;
+            mOwner.mCurrent = this;
+        }
+
+        public void endFrame(long updateNanos)
+        {
+            mOwner.mCurrent = null;
+            mUpdateCost.record(updateNanos);
+            mRunFrames++;
+            mRunUpdateNanos += updateNanos;
+            if(updateNanos > mRunMaxUpdateNanos)
+            {
+                mRunMaxUpdateNanos = updateNanos;
+            }
+        }
+
+        public void finishRun(boolean interrupted)
+        {
+            mRuns++;
+            mRunInterrupted = interrupted;
+            if(mOwner.mListener != null)
+            {
+                mOwner.mListener.onTransitionFinished(this);
+            }
+        }
+
+        public StringBuilder appendTo(StringBuilder out)
+        {
+            out.append(mName).append(": runs=").append(mRuns)
+                    .append(" late=").append(mTotalLateFrames)
+                    .append(" last run frames=").append(mRunFrames)
+                    .append(" late=").append(mRunLateFrames)
+                    .append("\n  update ");
+            mUpdateCost.appendTo(out).append("\n  updateStack ");
+            mUpdateStackCost.appendTo(out).append("\n  interval ");
+            return mFrameInterval.appendTo(out);
+        }
+    }
+
+    private final ArrayList<Transition> mTransitions = new ArrayList<>();
+    private final FrameHistogram mUpdateStackCost = new FrameHistogram();
+    private final FrameHistogram mLayoutCost = new FrameHistogram();
+    private final FrameHistogram mTouchLatency = new FrameHistogram();
+    private final long[] mPendingTouches = new long[MAX_PENDING_TOUCHES];
+    private int mPendingTouchCount;
+    private int mGestureTouchCount;
+    private boolean mGestureEnded;
+    private long mFrameBudget = DEFAULT_FRAME_BUDGET;
+    private Listener mListener;
+    private Transition mCurrent;
+    private long mPendingLayoutNanos;
+    private boolean mLayoutPassed;
+
+    public Transition newTransition(String name)
+    {
+        Transition transition = new Transition(this, name);
+        mTransitions.add(transition);
+        return transition;
+    }
+
+    public int getTransitionCount()
+    {
+        return mTransitions.size();
+    }
+
+    public Transition getTransition(int index)
+    {
+        return mTransitions.get(index);
+    }
+
+    public void setListener(Listener listener)
+    {
+        mListener = listener;
+    }
+
+    /** Sets the vsync period frames are judged late against. */
+    public void setFrameBudgetNanos(long budget)
+    {
+        mFrameBudget = budget;
+    }
+
+    public long getFrameBudgetNanos()
+    {
+        return mFrameBudget;
+    }
+
+    /** Every updateStack call, whatever triggered it. */
+    public FrameHistogram getUpdateStackCost()
+    {
+        return mUpdateStackCost;
+    }
+
+    /** Measure and layout passes of the stack, summed per frame that ran any. */
+    public FrameHistogram getLayoutCost()
+    {
+        return mLayoutCost;
+    }
+
+    /** From a touch that moved something to the frame drawn with it. */
+    public FrameHistogram getTouchLatency()
+    {
+        return mTouchLatency;
+    }
+
+    /** Stamps a touch whose handling changed what the next frame draws. */
+    public void onTouchApplied(long eventTimeNanos)
+    {
+        if(mPendingTouchCount < MAX_PENDING_TOUCHES)
+        {
+            mPendingTouches[mPendingTouchCount++] = eventTimeNanos;
+        }
+        mGestureTouchCount++;
+    }
+
+    /** Marks the end of a gesture: its latencies are reported with the next frame drawn. */
+    public void onGestureEnd()
+    {
+        mGestureEnded = true;
+    }
+
+    /**
+     * Called while the frame is drawn. Records the latency of every touch applied since the
+     * last frame.
+     *
+     * @return true if a gesture that moved something ended before this frame, and its
+     * latencies are complete.
+     */
+    public boolean onDraw(long nowNanos)
+    {
+        for(int i = 0;i < mPendingTouchCount;i++)
+        {
+            mTouchLatency.record(nowNanos - mPendingTouches[i]);
+        }
+        mPendingTouchCount = 0;
+        if(!mGestureEnded)
+        {
+            return false;
+        }
+        boolean moved = mGestureTouchCount > 0;
+        mGestureEnded = false;
+        mGestureTouchCount = 0;
+        return moved;
+    }
+
+    public void recordUpdateStack(long nanos)
+    {
+        mUpdateStackCost.record(nanos);
+        if(mCurrent != null)
+        {
+            mCurrent.mUpdateStackCost.record(nanos);
+        }
+    }
+
+    /** Adds the time of a measure or layout pass of the stack to the coming frame. */
+    public void recordLayoutPass(long nanos)
+    {
+        mPendingLayoutNanos += nanos;
+        mLayoutPassed = true;
+    }
+
+    /**
+     * Called before the frame is drawn, once measure and layout have run. Records the time
+     * the passes of the frame took, if it ran any.
+     */
+    public void onPreDraw()
+    {
+        if(mLayoutPassed)
+        {
+            mLayoutCost.record(mPendingLayoutNanos);
+            mPendingLayoutNanos = 0;
+            mLayoutPassed = false;
+        }
+    }
+
+    public void reset()
+    {
+        mUpdateStackCost.reset();
+        mLayoutCost.reset();
+        mTouchLatency.reset();
+        mPendingTouchCount = 0;
+        mGestureTouchCount = 0;
+        for(int i = 0;i < mTransitions.size();i++)
+        {
+            Transition transition = mTransitions.get(i);
+            transition.mUpdateCost.reset();
+            transition.mUpdateStackCost.reset();
+            transition.mFrameInterval.reset();
+            transition.mRuns = 0;
+            transition.mTotalLateFrames = 0;
+        }
+    }
+
+    public StringBuilder appendTo(StringBuilder out)
+    {
+        out.append("updateStack ");
+        mUpdateStackCost.appendTo(out).append("\nmeasure+layout ");
+        mLayoutCost.appendTo(out).append("\ntouch latency ");
+        mTouchLatency.appendTo(out);
+        for(int i = 0;i < mTransitions.size();i++)
+        {
+            mTransitions.get(i).appendTo(out.append('\n'));
+        }
+        return out;
+    }
+}
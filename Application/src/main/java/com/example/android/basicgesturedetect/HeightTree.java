@@ -0,0 +1,234 @@
+package com.example.android.basicgesturedetect;
+
+/**
+ * Per-card heights with O(log n) prefix sums, backed by a Fenwick tree.
+ *
+ * <p>Cards default to a reference height, and the tree only stores each card's difference
+ * from it, so measuring the reference card again only costs a rebuild when some cards have
+ * heights of their own. Changing one card's height, appending a card, the prefix sum of the
+ * cards above an index and the reverse lookup from an offset to an index all cost O(log n);
+ * swapping two neighbours during a drag-reorder is two updates.</p>
+ */
+public class HeightTree
+{
+    private float mReference;
+    private int mSize;
+    private float[] mDeltas;
+    // Cards given a height of their own, which a new reference must not change.
+    private boolean[] mOwnHeights;
+    private int mOwnHeightCount;
+    // 1-based Fenwick tree over mDeltas.
+    private double[] mTree;
+
+    public HeightTree()
+    {
+        mDeltas = new float[16];
+        mOwnHeights = new boolean[16];
+        mTree = new double[17];
+    }
+
+    public int size()
+    {
+        return mSize;
+    }
+
+    /** Sets the height of every card that has not been given one of its own. */
+    public void setReference(float height)
+    {
+        if(mOwnHeightCount > 0 && height != mReference)
+        {
+            for(int i = 0;i < mSize;i++)
+            {
+                if(mOwnHeights[i])
+                {
+                    mDeltas[i] += mReference - height;
+                }
+            }
+            mReference = height;
+            rebuild();
+            return;
+        }
+        mReference = height;
+    }
+
+    public float getReference()
+    {
+        return mReference;
+    }
+
+    public float get(int index)
+    {
+        return mReference + mDeltas[index];
+    }
+
+    public void set(int index, float height)
+    {
+        float delta = height - mReference;
+        add(index, delta - mDeltas[index]);
+        mDeltas[index] = delta;
+        if(!mOwnHeights[index])
+        {
+            mOwnHeights[index] = true;
+            mOwnHeightCount++;
+        }
+    }
+
+    /** Appends a card of the reference height. */
+    public void add()
+    {
+        ensureCapacity(mSize + 1);
+        mDeltas[mSize] = 0.0f;
+        mOwnHeights[mSize] = false;
+        // The new node covers the lowbit(k) cards ending at k, all but itself already in place.
+        int k = mSize + 1;
+        mTree[k] = prefixDelta(k - 1) - prefixDelta(k - (k & -k));
+        mSize++;
+    }
+
+    /** Grows or shrinks the tree; new cards get the reference height. */
+    public void resize(int size)
+    {
+        ensureCapacity(size);
+        for(int i = size;i < mSize;i++)
+        {
+            if(mOwnHeights[i])
+            {
+                mOwnHeights[i] = false;
+                mOwnHeightCount--;
+            }
+        }
+        for(int i = mSize;i < size;i++)
+        {
+            mDeltas[i] = 0.0f;
+            mOwnHeights[i] = false;
+        }
+        mSize = size;
+        rebuild();
+    }
+
+    /** Gives every card the reference height. */
+    public void clear()
+    {
+        for(int i = 0;i < mSize;i++)
+        {
+            mDeltas[i] = 0.0f;
+            mOwnHeights[i] = false;
+        }
+        mOwnHeightCount = 0;
+        rebuild();
+    }
+
+    /** Returns the summed height of the cards in [0, index). */
+    public float prefix(int index)
+    {
+        return (float) (index * (double) mReference + prefixDelta(index));
+    }
+
+    /**
+     * Returns the card at {@code offset} below the top of the first card, in [0, size): the
+     * last card whose prefix is not past the offset.
+     */
+    public int indexAt(float offset)
+    {
+        int position = 0;
+        double remaining = offset;
+        int step = Integer.highestOneBit(Math.max(1, mSize));
+        for(;step > 0;step >>= 1)
+        {
+            int next = position + step;
+            if(next <= mSize)
+            {
+                double span = step * (double) mReference + mTree[next];
+                if(span <= remaining)
+                {
+                    position = next;
+                    remaining -= span;
+                }
+            }
+        }
+        return Math.max(0, Math.min(mSize - 1, position));
+    }
+
+    /** Moves the height of card {@code from} to {@code to}, shifting the cards in between. */
+    public void move(int from, int to)
+    {
+        if(from < 0 || to < 0 || from >= mSize || to >= mSize)
+        {
+            throw new IndexOutOfBoundsException("move from " + from + " to " + to + ", size " + mSize);
+        }
+        int step = from < to ? 1 : -1;
+        for(int i = from;i != to;i += step)
+        {
+            swap(i, i + step);
+        }
+    }
+
+    private void swap(int a, int b)
+    {
+        boolean own = mOwnHeights[a];
+        mOwnHeights[a] = mOwnHeights[b];
+        mOwnHeights[b] = own;
+        float da = mDeltas[a];
+        float db = mDeltas[b];
+        if(da == db)
+        {
+            return;
+        }
+        add(a, db - da);
+        add(b, da - db);
+        mDeltas[a] = db;
+        mDeltas[b] = da;
+    }
+
+    private void add(int index, double value)
+    {
+        for(int k = index + 1;k <= mSize;k += k & -k)
+        {
+            mTree[k] += value;
+        }
+    }
+
+    private double prefixDelta(int count)
+    {
+        double sum = 0;
+        for(int k = count;k > 0;k -= k & -k)
+        {
+            sum += mTree[k];
+        }
+        return sum;
+    }
+
+    private void rebuild()
+    {
+        for(int k = 1;k <= mSize;k++)
+        {
+            mTree[k] = mDeltas[k - 1];
+        }
+        for(int k = 1;k <= mSize;k++)
+        {
+            int parent = k + (k & -k);
+            if(parent <= mSize)
+            {
+                mTree[parent] += mTree[k];
+            }
+        }
+    }
+
+    private void ensureCapacity(int capacity)
+    {
+        if(capacity <= mDeltas.length)
+        {
+            return;
+        }
+        int grown = Math.max(capacity, mDeltas.length * 2);
+        float[] deltas = new float[grown];
+        System.arraycopy(mDeltas, 0, deltas, 0, mSize);
+        mDeltas = deltas;
+        boolean[] own = new boolean[grown];
+        System.arraycopy(mOwnHeights, 0, own, 0, mSize);
+        mOwnHeights = own;
+        double[] tree = new double[grown + 1];
+        System.arraycopy(mTree, 0, tree, 0, mSize + 1);
+        mTree = tree;
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.android.basicgesturedetect;
+
+import java.util.Arrays;
+
+/**
+ * Finds the card drawn under a point, from the live card positions.
+ *
+ * <p>Cards are drawn in index order, so the card under {@code y} is the highest index among
+ * the cards whose top lies in {@code (y - itemHeight, y]}. {@link #build} sorts the cards by
+ * top edge and lays a max-index segment tree over that order; {@link #find} then binary
+ * searches the range of tops and queries its maximum, in O(log n). The positions can be in
+ * any order, so this holds mid-transition, mid-bounce and while cards are being reordered.</p>
+ *
+ * <p>When cards have different heights the range is sized for the tallest card, and a
+ * candidate too short to reach the point is excluded and the range searched again around it.
+ * Each exclusion costs another O(log n) query; only cards shorter than the tallest one and
+ * close above the point can be excluded.</p>
+ *
+ * <p>Building costs O(n log n) and reuses its arrays, so it is meant to be redone lazily,
+ * only when a touch needs it after the positions changed.</p>
+ */
+public class HitTester
+{
+    private int mCount;
+    private float mItemHeight; // the tallest card
+    private float[] mPositions;
+    private HeightTree mHeights;
+    // Card tops in ascending order, and the card each one belongs to.
+    private float[] mTops;
+    private long[] mKeys;
+    // Segment tree over the sorted cards: leaves at [mCount, 2 * mCount), max index above.
+    private int[] mTree;
+    // Sorted slot of each card, and the ranges left to search during a lookup.
+    private int[] mSlots;
+    private int[] mRanges;
+
+    public HitTester()
+    {
+        mTops = new float[0];
+        mKeys = new long[0];
+        mTree = new int[0];
+        mSlots = new int[0];
+        mRanges = new int[16];
+    }
+
+    public void build(float[] positions, int count, float itemHeight)
+    {
+        build(positions, null, count, itemHeight);
+    }
+
+    /**
+     * @param positions card tops; kept, not copied, until the next build.
+     * @param heights the height of every card, or null for cards all {@code itemHeight} high.
+     */
+    public void build(float[] positions, HeightTree heights, int count, float itemHeight)
+    {
+        if(mKeys.length < count)
+        {
+            mKeys = new long[count];
+            mTops = new float[count];
+            mTree = new int[2 * count];
+            mSlots = new int[count];
+        }
+        mCount = count;
+        mPositions = positions;
+        mHeights = heights;
+        mItemHeight = itemHeight;
+        if(heights != null)
+        {
+            for(int i = 0;i < count;i++)
+            {
+                mItemHeight = Math.max(mItemHeight, heights.get(i));
+            }
+        }
+        // Sorts (top, index) pairs as longs: no boxing and no comparator.
+        for(int i = 0;i < count;i++)
+        {
+            mKeys[i] = ((long) sortableBits(positions[i]) << 32) | i;
+        }
+        Arrays.sort(mKeys, 0, count);
+        for(int k = 0;k < count;k++)
+        {
+            int index = (int) mKeys[k];
+            mTops[k] = positions[index];
+            mTree[count + k] = index;
+            mSlots[index] = k;
+        }
+        for(int k = count - 1;k > 0;k--)
+        {
+            mTree[k] = Math.max(mTree[2 * k], mTree[2 * k + 1]);
+        }
+    }
+
+    /**
+     * Returns the index of the card drawn over {@code y}, in stack space, or -1 when no card
+     * covers it.
+     */
+    public int find(float y)
+    {
+        // Tops in (y - itemHeight, y] cover y.
+        int begin = upperBound(y - mItemHeight);
+        int end = upperBound(y);
+        if(mHeights == null)
+        {
+            return queryMax(begin, end);
+        }
+        int result = -1;
+        int ranges = 0;
+        mRanges[ranges++] = begin;
+        mRanges[ranges++] = end;
+        while(ranges > 0)
+        {
+            int rangeEnd = mRanges[--ranges];
+            int rangeBegin = mRanges[--ranges];
+            int index = queryMax(rangeBegin, rangeEnd);
+            if(index <= result)
+            {
+                // Nothing in this range is drawn above what was already found.
+                continue;
+            }
+            if(mPositions[index] + mHeights.get(index) > y)
+            {
+                result = index;
+                continue;
+            }
+            // Too short to reach y: search on either side of it.
+            int slot = mSlots[index];
+            if(mRanges.length < ranges + 4)
+            {
+                int[] grown = new int[mRanges.length * 2];
+                System.arraycopy(mRanges, 0, grown, 0, ranges);
+                mRanges = grown;
+            }
+            mRanges[ranges++] = rangeBegin;
+            mRanges[ranges++] = slot;
+            mRanges[ranges++] = slot + 1;
+            mRanges[ranges++] = rangeEnd;
+        }
+        return result;
+    }
+
+    /** Returns the first sorted slot whose top is greater than {@code value}. */
+    private int upperBound(float value)
+    {
+        int low = 0;
+        int high = mCount;
+        while(low < high)
+        {
+            int mid = (low + high) >>> 1;
+            if(mTops[mid] <= value)
+            {
+                low = mid + 1;
+            }
+            else
+            {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /** Returns the largest card index in sorted slots [begin, end), or -1 if empty. */
+    private int queryMax(int begin, int end)
+    {
+        int result = -1;
+        for(int l = begin + mCount, r = end + mCount;l < r;l >>= 1, r >>= 1)
+        {
+            if((l & 1) != 0)
+            {
+                result = Math.max(result, mTree[l++]);
+            }
+            if((r & 1) != 0)
+            {
+                result = Math.max(result, mTree[--r]);
+            }
+        }
+        return result;
+    }
+
+    /** Maps a float to an int with the same ordering. */
+    private static int sortableBits(float value)
+    {
+        int bits = Float.floatToIntBits(value);
+        return bits ^ ((bits >> 31) & 0x7fffffff);
+    }
+}
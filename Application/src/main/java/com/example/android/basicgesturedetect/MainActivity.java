@@ -17,14 +17,19 @@
 
 package com.example.android.basicgesturedetect;
 
+import android.content.Context;
 import android.graphics.Color;
 import android.os.Bundle;
 import android.support.v4.app.FragmentTransaction;
 import android.view.Menu;
 
+import java.io.File;
+import java.io.IOException;
+
 import com.example.android.common.activities.SampleActivityBase;
+import com.example.android.common.logger.BinaryLogNode;
 import com.example.android.common.logger.Log;
-import com.example.android.common.logger.LogFragment;
+import com.example.android.common.logger.LogListFragment;
 import com.example.android.common.logger.LogWrapper;
 import com.example.android.common.logger.MessageOnlyLogFilter;
 
@@ -38,6 +43,16 @@ public class MainActivity extends SampleActivityBase {
 
     public static final String FRAGTAG = "StackingCardFragment";
 
+    // Bytes of records kept in the binary log file, about 50000 short lines.
+    private static final int BINARY_LOG_SIZE = 4 * 1024 * 1024;
+
+    // Opened once per process and never closed: activities come and go on every configuration
+    // change, and the kernel writes the mapped pages back even when the process gets killed.
+    private static BinaryLogNode sBinaryLog;
+    private static String sBinaryLogError;
+
+    private MessageOnlyLogFilter mMsgFilter;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -51,12 +66,38 @@ public class MainActivity extends SampleActivityBase {
         }
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        // Lets go of this activity's log view, unless the next one already took over.
+        if (sBinaryLog != null && sBinaryLog.getNext() == mMsgFilter) {
+            sBinaryLog.setNext(null);
+        }
+    }
+
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
         getMenuInflater().inflate(R.menu.main, menu);
         return true;
     }
 
+    /**
+     * Returns the binary log of the process, opening it on first use, or null if the file
+     * could not be mapped.
+     */
+    private static BinaryLogNode getBinaryLog(Context context) {
+        if (sBinaryLog == null && sBinaryLogError == null) {
+            try {
+                sBinaryLog = new BinaryLogNode(
+                        new File(context.getApplicationContext().getFilesDir(), "log.bin"),
+                        BINARY_LOG_SIZE);
+            } catch (IOException e) {
+                sBinaryLogError = e.toString();
+            }
+        }
+        return sBinaryLog;
+    }
+
     /** Create a chain of targets that will receive log data */
     @Override
     public void initializeLogging() {
@@ -65,18 +106,30 @@ public class MainActivity extends SampleActivityBase {
         // Using Log, front-end to the logging chain, emulates android.util.log method signatures.
         Log.setLogNode(logWrapper);
 
+        // Keeps everything in a binary ring file as well, for analysis after long runs.
+        BinaryLogNode binaryLog = getBinaryLog(this);
+
         // Filter strips out everything except the message text.
         MessageOnlyLogFilter msgFilter = new MessageOnlyLogFilter();
-        logWrapper.setNext(msgFilter);
+        mMsgFilter = msgFilter;
+        if (binaryLog != null) {
+            logWrapper.setNext(binaryLog);
+            binaryLog.setNext(msgFilter);
+        } else {
+            logWrapper.setNext(msgFilter);
+        }
 
-        // On screen logging via a fragment with a TextView.
-        LogFragment logFragment = (LogFragment) getSupportFragmentManager()
+        // On screen logging via a fragment with a recycling list, which stays fast however
+        // long the log gets.
+        LogListFragment logFragment = (LogListFragment) getSupportFragmentManager()
                 .findFragmentById(R.id.log_fragment);
         msgFilter.setNext(logFragment.getLogView());
         logFragment.getLogView().setTextAppearance(this, R.style.Log);
         logFragment.getLogView().setBackgroundColor(Color.WHITE);
 
-
+        if (binaryLog == null) {
+            Log.w(TAG, "No binary log: " + sBinaryLogError);
+        }
         Log.i(TAG, "Ready");
     }
 }
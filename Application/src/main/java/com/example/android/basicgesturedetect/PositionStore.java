@@ -0,0 +1,151 @@
+package com.example.android.basicgesturedetect;
+
+/**
+ * Growable list of primitive float positions, one per card.
+ *
+ * <p>Replaces {@code ArrayList<Float>} on the animation path: reads and writes do not box,
+ * bulk operations run over the backing array, and {@link #move(int, int)} shifts only the
+ * cards between the two indices, so a drag-reorder step costs the same on any stack size.</p>
+ */
+public class PositionStore
+{
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private float[] mValues;
+    private float[] mScratch;
+    private int mSize;
+
+    public PositionStore()
+    {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public PositionStore(int capacity)
+    {
+        mValues = new float[Math.max(1, capacity)];
+        mScratch = new float[1];
+    }
+
+    public int size()
+    {
+        return mSize;
+    }
+
+    public float get(int index)
+    {
+        return mValues[index];
+    }
+
+    public void set(int index, float value)
+    {
+        mValues[index] = value;
+    }
+
+    public void add(float value)
+    {
+        ensureCapacity(mSize + 1);
+        mValues[mSize++] = value;
+    }
+
+    public void removeLast()
+    {
+        if(mSize == 0)
+        {
+            throw new IndexOutOfBoundsException("empty");
+        }
+        mSize--;
+    }
+
+    /** Grows or shrinks the store; new entries are filled with {@code value}. */
+    public void resize(int size, float value)
+    {
+        ensureCapacity(size);
+        for(int i = mSize;i < size;i++)
+        {
+            mValues[i] = value;
+        }
+        mSize = size;
+    }
+
+    public void fill(float value)
+    {
+        fill(0, mSize, value);
+    }
+
+    /** Sets the entries in [begin, end) to {@code value}. */
+    public void fill(int begin, int end, float value)
+    {
+        if(begin < 0 || end > mSize)
+        {
+            throw new IndexOutOfBoundsException("fill [" + begin + ", " + end + "), size " + mSize);
+        }
+        for(int i = begin;i < end;i++)
+        {
+            mValues[i] = value;
+        }
+    }
+
+    public void copyFrom(PositionStore other)
+    {
+        ensureCapacity(other.mSize);
+        System.arraycopy(other.mValues, 0, mValues, 0, other.mSize);
+        mSize = other.mSize;
+    }
+
+    /**
+     * Returns the backing array, valid up to {@link #size()} and only until the store grows.
+     * Lets bulk solvers such as {@link WalletLayoutEngine#solve} write in place.
+     */
+    public float[] array()
+    {
+        return mValues;
+    }
+
+    /** Moves one entry from {@code from} to {@code to}, shifting the entries in between. */
+    public void move(int from, int to)
+    {
+        moveRange(from, to, 1);
+    }
+
+    /**
+     * Moves {@code length} entries starting at {@code from} so that they start at {@code to},
+     * shifting the entries in between. Costs O(length + |to - from|).
+     */
+    public void moveRange(int from, int to, int length)
+    {
+        if(length < 0 || from < 0 || to < 0 || from + length > mSize || to + length > mSize)
+        {
+            throw new IndexOutOfBoundsException("move " + length + " from " + from + " to " + to
+                    + ", size " + mSize);
+        }
+        if(from == to || length == 0)
+        {
+            return;
+        }
+        if(mScratch.length < length)
+        {
+            mScratch = new float[length];
+        }
+        System.arraycopy(mValues, from, mScratch, 0, length);
+        if(from < to)
+        {
+            System.arraycopy(mValues, from + length, mValues, from, to - from);
+        }
+        else
+        {
+            System.arraycopy(mValues, to, mValues, to + length, from - to);
+        }
+        System.arraycopy(mScratch, 0, mValues, to, length);
+    }
+
+    private void ensureCapacity(int capacity)
+    {
+        if(capacity <= mValues.length)
+        {
+            return;
+        }
+        float[] grown = new float[Math.max(capacity, mValues.length * 2)];
+        System.arraycopy(mValues, 0, grown, 0, mSize);
+        mValues = grown;
+    }
+}
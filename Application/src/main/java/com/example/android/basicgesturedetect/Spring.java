@@ -0,0 +1,100 @@
+package com.example.android.basicgesturedetect;
+
+/**
+ * Critically damped spring, stepped in closed form.
+ *
+ * <p>A value {@code x} moving at {@code v} toward {@code target} follows
+ * {@code x(t) = target + (d + (v + w*d)*t) * e^(-w*t)} with {@code d = x - target}: it reaches
+ * the target as fast as it can without overshooting. Because each step evaluates that curve
+ * exactly, the motion is the same whatever the frame rate, and the velocity can be carried
+ * over when the target changes mid-flight.</p>
+ *
+ * <p>A step only computes one exponential, shared by every value stepped with the same
+ * {@link #setTimeStep(float)}.</p>
+ */
+public final class Spring
+{
+    // A value is at rest once it is this close to its target (in pixels) and this slow (in
+    // pixels per second): what is left of the motion would not show on the next frame.
+    public static final float REST_DISTANCE = 0.5f;
+    public static final float REST_VELOCITY = 10.0f;
+
+    private final float mFrequency;
+    private float mTimeStep;
+    private float mDecay;
+
+    /**
+     * @param frequency natural angular frequency, in radians per second. The distance left to
+     *                  cover falls under 0.1% after about {@code 9.2 / frequency} seconds.
+     */
+    public Spring(float frequency)
+    {
+        mFrequency = frequency;
+        setTimeStep(0.0f);
+    }
+
+    public float getFrequency()
+    {
+        return mFrequency;
+    }
+
+    /** Sets the time the next steps advance by, in seconds. */
+    public void setTimeStep(float seconds)
+    {
+        mTimeStep = seconds;
+        mDecay = (float) Math.exp(-mFrequency * seconds);
+    }
+
+    /** Returns the position reached after one time step. */
+    public float position(float x, float v, float target)
+    {
+        float d = x - target;
+        return target + (d + (v + mFrequency * d) * mTimeStep) * mDecay;
+    }
+
+    /** Returns the velocity reached after one time step. */
+    public float velocity(float x, float v, float target)
+    {
+        float d = x - target;
+        return (v - mFrequency * (v + mFrequency * d) * mTimeStep) * mDecay;
+    }
+
+    public static boolean isAtRest(float x, float v, float target)
+    {
+        return Math.abs(x - target) < REST_DISTANCE && Math.abs(v) < REST_VELOCITY;
+    }
+
+    /**
+     * Steps the values in [begin, end) toward their targets. Values that come to rest are
+     * snapped to their target with no velocity left.
+     *
+     * @return whether every value is at rest.
+     */
+    public boolean step(float[] x, float[] v, float[] targets, int begin, int end)
+    {
+        boolean rest = true;
+        float w = mFrequency;
+        float dt = mTimeStep;
+        float decay = mDecay;
+        for(int i = begin;i < end;i++)
+        {
+            float target = targets[i];
+            float d = x[i] - target;
+            float a = v[i] + w * d;
+            float nx = target + (d + a * dt) * decay;
+            float nv = (v[i] - w * a * dt) * decay;
+            if(isAtRest(nx, nv, target))
+            {
+                nx = target;
+                nv = 0.0f;
+            }
+            else
+            {
+                rest = false;
+            }
+            x[i] = nx;
+            v[i] = nv;
+        }
+        return rest;
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.android.basicgesturedetect;
+
+import android.content.Context;
+import android.util.AttributeSet;
+import android.widget.FrameLayout;
+
+/**
+ * FrameLayout whose children are drawn in an order supplied from outside, so that a stack of
+ * cards can be reordered without detaching and reattaching any view.
+ *
+ * <p>On API 21+ children are still sorted by Z first: give them all the same elevation and
+ * lift a child with translationZ to draw it above the others.</p>
+ *
+ * <p>The time of every measure and layout pass can be handed to a {@link PassListener}, to
+ * tell the frames that really re-measured or re-laid out the cards from those that only moved
+ * them.</p>
+ */
+public class StackFrameLayout extends FrameLayout
+{
+    public interface DrawingOrder
+    {
+        /** Returns the index of the child to draw at {@code drawingPosition}. */
+        int getChildDrawingOrder(int childCount, int drawingPosition);
+    }
+
+    public interface PassListener
+    {
+        /** Called after every measure or layout pass with the time it took. */
+        void onPass(long nanos);
+    }
+
+    private DrawingOrder mDrawingOrder;
+    private PassListener mPassListener;
+
+    public StackFrameLayout(Context context)
+    {
+        super(context);
+    }
+
+    public StackFrameLayout(Context context, AttributeSet attrs)
+    {
+        super(context, attrs);
+    }
+
+    public StackFrameLayout(Context context, AttributeSet attrs, int defStyleAttr)
+    {
+        super(context, attrs, defStyleAttr);
+    }
+
+    /** Sets the drawing order of the children, or null to draw them in index order. */
+    public void setDrawingOrder(DrawingOrder order)
+    {
+        mDrawingOrder = order;
+        setChildrenDrawingOrderEnabled(order != null);
+        invalidate();
+    }
+
+    /** Sets who is told how long each measure and layout pass takes, or null. */
+    public void setPassListener(PassListener listener)
+    {
+        mPassListener = listener;
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec)
+    {
+        long start = mPassListener != null ? System.nanoTime() : 0;
+        super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+        if(mPassListener != null)
+        {
+            mPassListener.onPass(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int left, int top, int right, int bottom)
+    {
+        long start = mPassListener != null ? System.nanoTime() : 0;
+        super.onLayout(changed, left, top, right, bottom);
+        if(mPassListener != null)
+        {
+            mPassListener.onPass(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    protected int getChildDrawingOrder(int childCount, int drawingPosition)
+    {
+        if(mDrawingOrder == null)
+        {
+            return drawingPosition;
+        }
+        return mDrawingOrder.getChildDrawingOrder(childCount, drawingPosition);
+    }
+}
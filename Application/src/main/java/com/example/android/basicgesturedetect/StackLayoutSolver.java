@@ -29,13 +29,16 @@ import android.widget.LinearLayout;
 import com.example.android.common.logger.Log;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Random;
 
 public class StackLayoutSolver extends GestureDetector.SimpleOnGestureListener {
 
     private float mCameraY;
-    private float mCascadeHeight;
-    private float mItemHeight;
+    private final CascadeEngine mCascade = new CascadeEngine();
+    // Offset of each item from its slot, as computed and as last applied (NaN to reapply).
+    private float[] mOffsets = new float[0];
+    private float[] mAppliedOffsets = new float[0];
     LinearLayout mStack;
     View mFirstChild;
     Activity mParentActivity;
@@ -80,7 +83,9 @@ public class StackLayoutSolver extends GestureDetector.SimpleOnGestureListener {
     @Override
     public boolean onSingleTapUp(MotionEvent e) {
         // Up motion completing a single tap occurred.
-        Log.i(TAG, "Single Tap Up" + getTouchType(e));
+        if (Log.isLoggable(Log.INFO)) {
+            Log.i(TAG, "Single Tap Up" + getTouchType(e));
+        }
         return false;
     }
 
@@ -88,7 +93,9 @@ public class StackLayoutSolver extends GestureDetector.SimpleOnGestureListener {
     public void onLongPress(MotionEvent e) {
         // Touch has been long enough to indicate a long press.
         // Does not indicate motion is complete yet (no up event necessarily)
-        Log.i(TAG, "Long Press" + getTouchType(e));
+        if (Log.isLoggable(Log.INFO)) {
+            Log.i(TAG, "Long Press" + getTouchType(e));
+        }
         ImageView view = new ImageView(mParentActivity.getApplicationContext());
         int[] ids = {R.drawable.credit_card_1,R.drawable.credit_card_2,R.drawable.credit_card_3,R.drawable.credit_card_4};
         int id = ids[(new Random()).nextInt(ids.length)];
@@ -99,69 +106,103 @@ public class StackLayoutSolver extends GestureDetector.SimpleOnGestureListener {
         mScrollItems.add(view);
         view.setElevation(mScrollItems.size()-1);
         mStack.addView(view);
-        onScroll(null,null,0,0);
+        // The new item lays out into its slot, and the layout change picks it up from there.
     }
 
+    /**
+     * Sets the cascade up again after a layout change. Only a change of the item count or
+     * sizes recomputes it; the cascade itself moves items with translationY, which does not
+     * lay anything out again, so this cannot feed back into another layout change.
+     */
     private void recalculateItemHeight()
     {
-        if(mScrollItems.size() > 0)
+        if(mScrollItems.size() == 0)
+        {
+            return;
+        }
+        View img = mScrollItems.get(0);
+        float itemHeight = img.getBottom() - img.getTop();
+        float cascadeHeight = (mStack.getHeight() - itemHeight)/2.0f;
+        if(!mCascade.setup(mScrollItems.size(), itemHeight, cascadeHeight))
         {
-            View img = mScrollItems.get(0);
-            mItemHeight = img.getBottom() - img.getTop();
-            mCascadeHeight = (mStack.getHeight() - mItemHeight)/2.0f;
+            return;
         }
-        onScroll(null,null,0,0);
+        int count = mScrollItems.size();
+        if(mOffsets.length < count)
+        {
+            mOffsets = new float[Math.max(count, mOffsets.length * 2)];
+            mAppliedOffsets = new float[mOffsets.length];
+        }
+        Arrays.fill(mAppliedOffsets, Float.NaN);
+        updateCascade();
     }
 
     @Override
     public boolean onScroll(MotionEvent e1, MotionEvent e2, float distanceX, float distanceY) {
-        if(mItemHeight <= 0)
+        if(mCascade.getItemHeight() <= 0)
         {
             return false;
         }
         mCameraY += distanceY;
-        mCameraY = Math.min(mCameraY,mItemHeight*mScrollItems.size()-(mStack.getHeight() - mItemHeight)/2.0f);
-        mCameraY = Math.max(mCameraY, mItemHeight/2);
-        float pivotIndex = Math.max(0,mCameraY/mItemHeight)+1;
-        Log.i("GestureListener", "mCameraY "+mCameraY+" pivotIndex "+pivotIndex);
-        for(int i=0;i<mScrollItems.size();i++)
+        updateCascade();
+        return false;
+    }
+
+    /** Moves every item whose offset changed to where the cascade puts it. */
+    private void updateCascade()
+    {
+        if(mCascade.getItemHeight() <= 0)
         {
-            float origin = i * mItemHeight;
-            float target = mCameraY - ((pivotIndex - i)/pivotIndex)* mCascadeHeight;
-            float margin = Math.max(0, target - origin) - mCameraY + mCascadeHeight;
-            ViewGroup.MarginLayoutParams marginParams = new ViewGroup.MarginLayoutParams(mScrollItems.get(i).getLayoutParams());
-            marginParams.setMargins(0, (int)margin, 0, (int)-margin);
-            LinearLayout.LayoutParams layoutParams = new LinearLayout.LayoutParams(marginParams);
-            mScrollItems.get(i).setLayoutParams(layoutParams);
+            return;
+        }
+        mCameraY = mCascade.clampCamera(mCameraY);
+        Log.v("GestureListener", "mCameraY {}", mCameraY);
+        int count = mCascade.getCount();
+        mCascade.solve(mCameraY, mOffsets);
+        for(int i=0;i<count;i++)
+        {
+            float offset = mOffsets[i];
+            if(offset != mAppliedOffsets[i])
+            {
+                mScrollItems.get(i).setTranslationY(offset);
+                mAppliedOffsets[i] = offset;
+            }
         }
-        return false;
     }
 
     @Override
     public boolean onFling(MotionEvent e1, MotionEvent e2, float velocityX,
     float velocityY) {
         // Fling event occurred.  Notification of this one happens after an "up" event.
-        Log.i(TAG, "Fling" + getTouchType(e1));
+        if (Log.isLoggable(Log.INFO)) {
+            Log.i(TAG, "Fling" + getTouchType(e1));
+        }
         return false;
     }
 
     @Override
     public void onShowPress(MotionEvent e) {
         // User performed a down event, and hasn't moved yet.
-        Log.i(TAG, "Show Press" + getTouchType(e));
+        if (Log.isLoggable(Log.INFO)) {
+            Log.i(TAG, "Show Press" + getTouchType(e));
+        }
     }
 
     @Override
     public boolean onDown(MotionEvent e) {
         // "Down" event - User touched the screen.
-        Log.i(TAG, "Down" + getTouchType(e));
+        if (Log.isLoggable(Log.INFO)) {
+            Log.i(TAG, "Down" + getTouchType(e));
+        }
         return false;
     }
 
     @Override
     public boolean onDoubleTap(MotionEvent e) {
         // User tapped the screen twice.
-        Log.i(TAG, "Double tap" + getTouchType(e));
+        if (Log.isLoggable(Log.INFO)) {
+            Log.i(TAG, "Double tap" + getTouchType(e));
+        }
         return false;
     }
 
@@ -170,7 +211,9 @@ public class StackLayoutSolver extends GestureDetector.SimpleOnGestureListener {
         // Since double-tap is actually several events which are considered one aggregate
         // gesture, there's a separate callback for an individual event within the doubletap
         // occurring.  This occurs for down, up, and move.
-        Log.i(TAG, "Event within double tap" + getTouchType(e));
+        if (Log.isLoggable(Log.INFO)) {
+            Log.i(TAG, "Event within double tap" + getTouchType(e));
+        }
         return false;
     }
 
@@ -178,7 +221,9 @@ public class StackLayoutSolver extends GestureDetector.SimpleOnGestureListener {
     public boolean onSingleTapConfirmed(MotionEvent e) {
         // A confirmed single-tap event has occurred.  Only called when the detector has
         // determined that the first tap stands alone, and is not part of a double tap.
-        Log.i(TAG, "Single tap confirmed" + getTouchType(e));
+        if (Log.isLoggable(Log.INFO)) {
+            Log.i(TAG, "Single tap confirmed" + getTouchType(e));
+        }
         return false;
     }
     // END_INCLUDE(init_gestureListener)
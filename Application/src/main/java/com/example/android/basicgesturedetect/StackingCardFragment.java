@@ -25,12 +25,16 @@ import android.widget.FrameLayout;
 import android.widget.ImageView;
 import android.widget.LinearLayout;
 
-import com.example.android.common.logger.LogFragment;
+import com.example.android.common.logger.LogListFragment;
 
 import java.util.Random;
 
 public class StackingCardFragment extends Fragment
 {
+    private static final int CARDS[] = {R.drawable.credit_card_1,
+            R.drawable.credit_card_2,
+            R.drawable.credit_card_3,
+            R.drawable.credit_card_4 };
 
     @Override
     public void onCreate(Bundle savedInstanceState) {
@@ -46,17 +50,63 @@ public class StackingCardFragment extends Fragment
         ViewGroup stack = getActivity().findViewById(R.id.grpStack);
         // BEGIN_INCLUDE(init_detector)stack
         WalletLayoutSolver solver = new WalletLayoutSolver(){
+            // Artwork picked for each card, kept so a card looks the same when it is bound
+            // again or moved.
+            private int[] mArtwork = new int[16];
+            private int mArtworkCount;
+            private final Random mRandom = new Random();
+
+            @Override
+            public void onPopulate(int count)
+            {
+                CardArtworkCache.get(getActivity()).prewarm(CARDS, getArtworkWidth());
+            }
+
             @Override
             public void onBind(int index, View view)
             {
                 super.onBind(index, view);
                 ImageView graphic = (ImageView)view.findViewById(R.id.imgGraphic);
-                final int cards[] = {R.drawable.credit_card_1,
-                        R.drawable.credit_card_2,
-                        R.drawable.credit_card_3,
-                        R.drawable.credit_card_4 };
-                Random r = new Random();
-                graphic.setImageResource(cards[r.nextInt(cards.length)]);
+                CardArtworkCache.get(getActivity()).load(graphic, getArtwork(index),
+                        getArtworkWidth());
+            }
+
+            @Override
+            public void onMoveCard(int from, int to)
+            {
+                getArtwork(Math.max(from, to));
+                int moved = mArtwork[from];
+                if(from < to)
+                {
+                    System.arraycopy(mArtwork, from + 1, mArtwork, from, to - from);
+                }
+                else
+                {
+                    System.arraycopy(mArtwork, to, mArtwork, to + 1, from - to);
+                }
+                mArtwork[to] = moved;
+            }
+
+            // Cards span the screen, and are not laid out yet when first bound. Using one
+            // width for every card also lets them all share the prewarmed bitmaps.
+            private int getArtworkWidth()
+            {
+                return getResources().getDisplayMetrics().widthPixels;
+            }
+
+            private int getArtwork(int index)
+            {
+                if(mArtwork.length <= index)
+                {
+                    int[] grown = new int[Math.max(index + 1, mArtwork.length * 2)];
+                    System.arraycopy(mArtwork, 0, grown, 0, mArtworkCount);
+                    mArtwork = grown;
+                }
+                while(mArtworkCount <= index)
+                {
+                    mArtwork[mArtworkCount++] = CARDS[mRandom.nextInt(CARDS.length)];
+                }
+                return mArtwork[index];
             }
 
             @Override
@@ -94,8 +144,8 @@ public class StackingCardFragment extends Fragment
     }
 
     public void clearLog() {
-        LogFragment logFragment =  ((LogFragment) getActivity().getSupportFragmentManager()
+        LogListFragment logFragment =  ((LogListFragment) getActivity().getSupportFragmentManager()
                 .findFragmentById(R.id.log_fragment));
-        logFragment.getLogView().setText("");
+        logFragment.getLogView().clearLog();
     }
 }
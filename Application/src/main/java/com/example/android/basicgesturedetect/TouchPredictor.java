@@ -0,0 +1,142 @@
+package com.example.android.basicgesturedetect;
+
+/**
+ * Extrapolates a finger coordinate a little ahead in time, so that whatever follows the finger
+ * is drawn where the finger will be when the frame shows, not where it was last reported.
+ *
+ * <p>Samples, including the historical ones batched into a single MotionEvent, go into a
+ * fixed ring. {@link #predict(long)} compares the velocity over the newer half of a short
+ * window with the velocity over the older half: while the finger keeps its direction and
+ * does not slow down, the newer velocity is extrapolated, at most {@link #setHorizon(long)}
+ * past the last sample. A finger that slows down or turns gets no prediction at all, which
+ * avoids overshooting where it is about to stop.</p>
+ *
+ * <p>Times are in nanoseconds, on the same time base as the frame times.</p>
+ */
+public class TouchPredictor
+{
+    private static final int CAPACITY = 32;
+    private static final long DEFAULT_WINDOW = 40000000L; // 40ms, in nanosecs
+
+    private final long[] mTimes;
+    private final float[] mValues;
+    private int mCount;
+    private int mNewest;
+    private long mHorizon;
+    private long mWindow;
+
+    public TouchPredictor(long horizonNanos)
+    {
+        mTimes = new long[CAPACITY];
+        mValues = new float[CAPACITY];
+        mHorizon = horizonNanos;
+        mWindow = DEFAULT_WINDOW;
+    }
+
+    /** Sets how far past the last sample a prediction may reach; 0 disables prediction. */
+    public void setHorizon(long horizonNanos)
+    {
+        mHorizon = horizonNanos;
+    }
+
+    public long getHorizon()
+    {
+        return mHorizon;
+    }
+
+    /** Forgets every sample, e.g. when a new gesture starts. */
+    public void reset()
+    {
+        mCount = 0;
+    }
+
+    public void add(long timeNanos, float value)
+    {
+        if(mCount > 0 && timeNanos <= mTimes[mNewest])
+        {
+            // Same or older timestamp: keep the latest coordinate, not a zero-length step.
+            mValues[mNewest] = value;
+            return;
+        }
+        mNewest = (mNewest + 1) % CAPACITY;
+        mTimes[mNewest] = timeNanos;
+        mValues[mNewest] = value;
+        mCount = Math.min(mCount + 1, CAPACITY);
+    }
+
+    /** Returns the last coordinate added, or 0 if there is none. */
+    public float latest()
+    {
+        return mCount > 0 ? mValues[mNewest] : 0.0f;
+    }
+
+    /**
+     * Returns the coordinate expected at {@code timeNanos}, or the latest one when the finger
+     * decelerates, turns or has too few samples to tell.
+     */
+    public float predict(long timeNanos)
+    {
+        float latest = latest();
+        if(mCount < 3 || mHorizon <= 0)
+        {
+            return latest;
+        }
+        long newestTime = mTimes[mNewest];
+        long target = Math.min(timeNanos, newestTime + mHorizon);
+        if(target <= newestTime)
+        {
+            return latest;
+        }
+        int middle = find(newestTime - mWindow / 2, 1);
+        if(middle < 0)
+        {
+            return latest;
+        }
+        int oldest = find(newestTime - mWindow, middle + 1);
+        if(oldest < 0)
+        {
+            // Fewer samples than a full window: use the oldest one there is.
+            oldest = mCount - 1;
+            if(oldest <= middle)
+            {
+                return latest;
+            }
+        }
+        float newer = slope(middle, 0);
+        float older = slope(oldest, middle);
+        if(newer * older <= 0.0f || Math.abs(newer) < Math.abs(older))
+        {
+            return latest;
+        }
+        return latest + newer * (target - newestTime);
+    }
+
+    /**
+     * Returns how many samples back the first sample at or before {@code time} is, searching
+     * from {@code from} samples back, or -1 if there is none.
+     */
+    private int find(long time, int from)
+    {
+        for(int back = from;back < mCount;back++)
+        {
+            if(mTimes[index(back)] <= time)
+            {
+                return back;
+            }
+        }
+        return -1;
+    }
+
+    /** Returns the velocity, per nanosecond, from {@code from} samples back to {@code to}. */
+    private float slope(int from, int to)
+    {
+        int a = index(from);
+        int b = index(to);
+        return (mValues[b] - mValues[a]) / (mTimes[b] - mTimes[a]);
+    }
+
+    private int index(int back)
+    {
+        return (mNewest - back + CAPACITY) % CAPACITY;
+    }
+}
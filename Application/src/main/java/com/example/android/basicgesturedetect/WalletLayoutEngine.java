@@ -0,0 +1,300 @@
+package com.example.android.basicgesturedetect;
+
+/**
+ * Position math of {@link WalletLayoutSolver}, free of any android.* dependency.
+ *
+ * <p>Every method is a pure function of its arguments, so the layout can be profiled and
+ * regression-tested on a plain JVM, and solved off the main thread for large stacks.
+ * Positions are card tops in stack space; subtract the camera to get screen space.</p>
+ */
+public final class WalletLayoutEngine
+{
+    public enum State
+    {
+        Intro,
+        List,
+        ListToSingle,
+        Single,
+        SingleToList,
+        Edit
+    }
+
+    public static final float STACK_RATIO = 0.2f;
+    private static final float STRETCH_RATIO = 0.05f;
+    private static final float PILE_EPSILON = 0.5f;
+
+    private WalletLayoutEngine()
+    {
+    }
+
+    /** Returns the height of the visible sliver of a stacked card. */
+    public static float stackHeight(float itemHeight)
+    {
+        return itemHeight * STACK_RATIO;
+    }
+
+    /**
+     * Returns the camera max of a stack of cards of varying heights: the bottom of the last
+     * card meets the bottom of the viewport.
+     */
+    public static float cameraMax(HeightTree heights, float viewport)
+    {
+        int last = heights.size() - 1;
+        if(last < 0)
+        {
+            return 0;
+        }
+        return Math.max(0, STACK_RATIO * heights.prefix(last) + heights.get(last) - viewport);
+    }
+
+    public static float cameraClamped(float camera, HeightTree heights, float viewport)
+    {
+        return CMath.clamp(0.0f, cameraMax(heights, viewport), camera);
+    }
+
+    /** Returns the stacked height, squeezed or stretched by how far the camera overscrolls. */
+    public static float stackStretch(float camera, HeightTree heights, float viewport)
+    {
+        return stackStretch(camera - cameraClamped(camera, heights, viewport),
+                heights.getReference());
+    }
+
+    /**
+     * Returns the stacked height for a camera {@code overscroll} pixels past either end
+     * (negative above the top).
+     */
+    public static float stackStretch(float overscroll, float itemHeight)
+    {
+        float stacked = stackHeight(itemHeight) - STRETCH_RATIO * overscroll;
+        return CMath.clamp(1.0f, itemHeight, stacked);
+    }
+
+    /**
+     * Returns the camera velocity that scrolls the stack while a card is dragged near an edge:
+     * zero outside the two bands of {@code zone} pixels at the top and bottom of the viewport,
+     * growing with how deep the finger at {@code y} is into a band, up to {@code maxVelocity}
+     * at the edge itself. Negative at the top.
+     */
+    public static float edgeScrollVelocity(float y, float viewport, float zone, float maxVelocity)
+    {
+        zone = Math.min(zone, viewport / 2);
+        if(zone <= 0)
+        {
+            return 0.0f;
+        }
+        float depth;
+        if(y < zone)
+        {
+            depth = (y - zone) / zone;
+        }
+        else if(y > viewport - zone)
+        {
+            depth = (y - (viewport - zone)) / zone;
+        }
+        else
+        {
+            return 0.0f;
+        }
+        return maxVelocity * CMath.clamp(-1.0f, 1.0f, depth);
+    }
+
+    /**
+     * Returns the share of each card's height left showing in the List layout: the stacked
+     * height of the reference card over its full height.
+     */
+    public static float stackScale(float stackedHeight, float itemHeight)
+    {
+        return itemHeight > 0 ? stackedHeight / itemHeight : 0;
+    }
+
+    /**
+     * Returns the position of a card in the List layout: every card above it shows the same
+     * share of its height. Cards above the clamped camera pile up at the camera.
+     */
+    public static float listPosition(HeightTree heights, int index, float cameraClamped,
+                                     float stackedHeight)
+    {
+        float scale = stackScale(stackedHeight, heights.getReference());
+        return Math.max(heights.prefix(index) * scale, cameraClamped);
+    }
+
+    /**
+     * Returns the card on top of the pile at the camera in the List layout. The cards under it
+     * share its top and are covered by it, so it is the first card worth drawing.
+     */
+    public static int listPileTop(HeightTree heights, float cameraClamped, float stackedHeight)
+    {
+        float scale = stackScale(stackedHeight, heights.getReference());
+        return scale > 0 ? heights.indexAt(cameraClamped / scale) : 0;
+    }
+
+    /**
+     * Returns one past the last card whose top is above the bottom of the viewport in the List
+     * layout. List positions grow with the index, so no card past it shows.
+     */
+    public static int listVisibleEnd(HeightTree heights, float camera, float stackedHeight,
+                                     float viewport)
+    {
+        float scale = stackScale(stackedHeight, heights.getReference());
+        if(scale <= 0 || heights.size() == 0)
+        {
+            return heights.size();
+        }
+        return heights.indexAt((camera + viewport) / scale) + 1;
+    }
+
+    /**
+     * Returns the position of a card in the Single layout: the focused card sits at the
+     * camera, the others are pushed off-screen above and below it.
+     */
+    public static float singlePosition(int index, int focused, float camera, float stackedHeight,
+                                       float viewport)
+    {
+        float y = camera;
+        if(index < focused)
+        {
+            y -= viewport * 2.0f;
+            y -= (focused - index) * stackedHeight;
+        }
+        if(index > focused)
+        {
+            y += viewport * 2.0f;
+            y += (index - focused) * stackedHeight;
+        }
+        return y;
+    }
+
+    /**
+     * Flags the cards that can be seen, with occlusion culling.
+     *
+     * @see #computeVisibility(float[], int, float, float, float, boolean, boolean[])
+     */
+    public static int computeVisibility(float[] positions, int count, float camera, float itemHeight,
+                                        float viewport, boolean[] out)
+    {
+        return computeVisibility(positions, count, camera, itemHeight, viewport, true, out);
+    }
+
+    /**
+     * Flags the cards that can be seen. A card's visible interval is its span clipped to the
+     * viewport; with {@code occlude}, the spans of the cards drawn on top of it (those with a
+     * higher index) are cut from it too, so cards piled up at the camera or buried under a
+     * fan of other cards are hidden. Occlusion only holds when cards are opaque and drawn in
+     * index order.
+     *
+     * <p>Cards are scanned from the top of the drawing order down, keeping the contiguous
+     * stretch covered by the cards seen so far. A card that falls short of that stretch
+     * starts a new one, so the covered area is never over-estimated.</p>
+     *
+     * @param camera the camera the positions are rendered with.
+     * @param out receives {@code count} flags; must hold at least that many.
+     * @return the number of visible cards.
+     */
+    public static int computeVisibility(float[] positions, int count, float camera, float itemHeight,
+                                        float viewport, boolean occlude, boolean[] out)
+    {
+        return computeVisibility(positions, null, count, camera, itemHeight, viewport, occlude, out);
+    }
+
+    /**
+     * Flags the cards that can be seen, for cards of varying heights.
+     *
+     * @param heights the height of every card, or null for cards all {@code itemHeight} high.
+     * @see #computeVisibility(float[], int, float, float, float, boolean, boolean[])
+     */
+    public static int computeVisibility(float[] positions, HeightTree heights, int count,
+                                        float camera, float itemHeight, float viewport,
+                                        boolean occlude, boolean[] out)
+    {
+        return computeVisibility(positions, heights, 0, count, camera, itemHeight, viewport,
+                occlude, out);
+    }
+
+    /**
+     * Flags the cards in [begin, end) that can be seen. Only those cards are tested, and only
+     * they hide each other; the flags of the other cards are left untouched.
+     *
+     * @see #computeVisibility(float[], int, float, float, float, boolean, boolean[])
+     */
+    public static int computeVisibility(float[] positions, HeightTree heights, int begin, int end,
+                                        float camera, float itemHeight, float viewport,
+                                        boolean occlude, boolean[] out)
+    {
+        int visible = 0;
+        float coveredTop = 0;
+        float coveredBottom = 0;
+        for(int i = end - 1;i >= begin;i--)
+        {
+            float top = positions[i] - camera;
+            float bottom = top + (heights != null ? heights.get(i) : itemHeight);
+            float visibleTop = Math.max(top, 0);
+            float visibleBottom = Math.min(bottom, viewport);
+            boolean shown = visibleBottom > visibleTop;
+            if(shown && occlude && coveredBottom > coveredTop
+                    && coveredTop <= visibleTop + PILE_EPSILON
+                    && coveredBottom >= visibleBottom - PILE_EPSILON)
+            {
+                shown = false;
+            }
+            if(top <= coveredBottom && bottom >= coveredTop && coveredBottom > coveredTop)
+            {
+                coveredTop = Math.min(coveredTop, top);
+                coveredBottom = Math.max(coveredBottom, bottom);
+            }
+            else
+            {
+                coveredTop = top;
+                coveredBottom = bottom;
+            }
+            out[i] = shown;
+            if(shown)
+            {
+                visible++;
+            }
+        }
+        return visible;
+    }
+
+    /**
+     * Solves the resting position of every card for a state. The List layouts walk the heights
+     * once instead of asking {@link #listPosition} for each card.
+     *
+     * @param heights the height of every card, its reference being the full card height.
+     * @param focused the focused card, only used by the Single layouts.
+     * @param out receives {@code count} positions; must hold at least that many.
+     * @return {@code out}
+     */
+    public static float[] solve(State state, float camera, float stackedHeight, HeightTree heights,
+                                float viewport, int count, int focused, float[] out)
+    {
+        return solve(state, camera, stackedHeight, heights, viewport, 0, count, focused, out);
+    }
+
+    /**
+     * Solves the resting position of the cards in [begin, end) only, leaving the others
+     * untouched.
+     *
+     * @see #solve(State, float, float, HeightTree, float, int, int, float[])
+     */
+    public static float[] solve(State state, float camera, float stackedHeight, HeightTree heights,
+                                float viewport, int begin, int end, int focused, float[] out)
+    {
+        if(state == State.ListToSingle || state == State.Single)
+        {
+            for(int i = begin;i < end;i++)
+            {
+                out[i] = singlePosition(i, focused, camera, stackedHeight, viewport);
+            }
+            return out;
+        }
+        float clamped = cameraClamped(camera, heights, viewport);
+        float scale = stackScale(stackedHeight, heights.getReference());
+        float top = begin > 0 ? heights.prefix(begin) : 0;
+        for(int i = begin;i < end;i++)
+        {
+            out[i] = Math.max(top * scale, clamped);
+            top += heights.get(i);
+        }
+        return out;
+    }
+}
@@ -1,70 +1,134 @@
 package com.example.android.basicgesturedetect;
 
 import android.app.Activity;
-import android.os.Handler;
-import android.os.Looper;
-import android.view.GestureDetector;
+import android.os.Build;
+import android.support.v4.view.AsyncLayoutInflater;
 import android.view.MotionEvent;
+import android.view.VelocityTracker;
 import android.view.View;
+import android.view.ViewConfiguration;
 import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
 import android.widget.FrameLayout;
 import android.widget.LinearLayout;
 
+import com.example.android.basicgesturedetect.WalletLayoutEngine.State;
+import com.example.android.common.logger.Log;
+
 import java.util.ArrayList;
+import java.util.Arrays;
 
-public class WalletLayoutSolver extends GestureDetector.SimpleOnGestureListener
+public class WalletLayoutSolver
 {
-    public static class Animator
+    public static class Animator implements FrameClock.Callback
     {
-        private static final int FRAME_TIME = 1; // in milisecs
-        private long mTimeOrigin;
-        private float mDuration;
+        private static final float NANOS_PER_MILLI = 1000000.0f;
+        private static final float NANOS_PER_SECOND = 1000000000.0f;
+        private final FrameClock mClock;
+        private long mTimeOrigin; // in nanosecs, on the clock's time base
+        private long mLastFrameTime; // in nanosecs, on the clock's time base
+        private float mFrameDelta; // in secs
+        private float mDuration; // in milisecs
+        private boolean mSettled;
+        private FrameStats.Transition mStats;
         public boolean mIsAwake;
 
-        public Animator(float duration)
+        public Animator(FrameClock clock, float duration)
         {
+            mClock = clock;
             mDuration = duration;
         }
 
+        /** Reports the frames of every run of this animator to {@code stats}. */
+        public Animator setStats(FrameStats.Transition stats)
+        {
+            mStats = stats;
+            return this;
+        }
+
         public void awake()
         {
-            mTimeOrigin = System.currentTimeMillis();
+            mTimeOrigin = mClock.now();
             onAwake();
             if(!mIsAwake)
             {
                 mIsAwake = true;
-                update();
+                mSettled = false;
+                mLastFrameTime = mTimeOrigin;
+                if(mStats != null)
+                {
+                    mStats.beginRun();
+                }
+                mClock.add(this);
+                update(mTimeOrigin);
             }
         }
 
         public void destroy()
         {
+            boolean wasAwake = mIsAwake;
             mIsAwake = false;
+            mClock.remove(this);
             onDestroy(true);
+            if(wasAwake && mStats != null)
+            {
+                mStats.finishRun(true);
+            }
+        }
+
+        /**
+         * Ends the run at the end of the current frame, before its duration is up. Called from
+         * {@link #onUpdate(float)} once the motion has come to rest.
+         */
+        public void settle()
+        {
+            mSettled = true;
+        }
+
+        /** Returns the time since the previous frame of this run, in seconds. */
+        public float getFrameDelta()
+        {
+            return mFrameDelta;
+        }
+
+        @Override
+        public void onFrame(long frameTimeNanos)
+        {
+            update(frameTimeNanos);
         }
 
-        public void update()
+        public void update(long frameTimeNanos)
         {
             if(!mIsAwake)
             {
                 return;
             }
-            float time = (System.currentTimeMillis() - mTimeOrigin)/mDuration;
+            float time = (frameTimeNanos - mTimeOrigin)/NANOS_PER_MILLI/mDuration;
             time = CMath.clamp(0.0f,1.0f, time);
-            onUpdate(time);
-            if(time >= 1.0f)
+            mFrameDelta = Math.max(0, frameTimeNanos - mLastFrameTime)/NANOS_PER_SECOND;
+            mLastFrameTime = frameTimeNanos;
+            if(mStats == null)
+            {
+                onUpdate(time);
+            }
+            else
+            {
+                long start = System.nanoTime();
+                mStats.beginFrame(frameTimeNanos);
+                onUpdate(time);
+                long end = System.nanoTime();
+                mStats.endFrame(end - start);
+            }
+            if(mIsAwake && (time >= 1.0f || mSettled))
             {
                 mIsAwake = false;
+                mClock.remove(this);
                 onDestroy(false);
-                return;
-            }
-            // TODO: this is bad for performance, do not create object every frame
-            final Handler handler = new Handler(Looper.getMainLooper());
-            handler.postDelayed(new Runnable() {
-                public void run() {
-                    update();
+                if(mStats != null)
+                {
+                    mStats.finishRun(false);
                 }
-            }, FRAME_TIME);
+            }
         }
 
         public void onAwake(){}
@@ -74,101 +138,213 @@ public class WalletLayoutSolver extends GestureDetector.SimpleOnGestureListener
         public void onUpdate(float time){}
     }
 
-    public static class CMath
+    /**
+     * How {@link #updateStack()} moves the cards to their positions.
+     */
+    public enum RenderMode
     {
-        public static float easeOutBack(float from, float to, float alpha)
-        {
-            final float c1 = 1.70158f;
-            final float c2 = c1 + 1.0f;
-            float r = (float) (1.0f + c2 * Math.pow(alpha - 1.0f, 3) + c1 * Math.pow(alpha - 1.0f, 2));
-            float d = to - from;
-            return from + d * r;
-        }
-        public static float easeInOutBack(float from, float to, float alpha)
-        {
-            final float c1 = 1.70158f;
-            final float c2 = c1 * 1.525f;
-            float alpha2 = alpha*2.0f;
-            float r = (float) (alpha < 0.5f
-                    ? (Math.pow(alpha2, 2) * ((c2 + 1.0f) * alpha2 - c2)) / 2.0f
-                    : (Math.pow(alpha2 - 2.0f, 2) * ((c2 + 1) * (alpha2 - 2.0f) + c2) + 2.0f) / 2.0f);
-            float d = to - from;
-            return from + d * r;
-        }
-
-        public static float lerp(float from, float to, float alpha)
-        {
-            return from + (to - from)*alpha;
-        }
-        public static float lerpInvert(float from, float to, float alpha)
-        {
-            return to + (from - to)*(1.0f-alpha);
-        }
-
-        public static float clamp(float min, float max, float alpha)
-        {
-            return Math.min(max, Math.max(min, alpha));
-        }
-        public static int clamp(int min, int max, int alpha)
-        {
-            return Math.min(max, Math.max(min, alpha));
-        }
+        /** Top margins of FrameLayout children. Costs a layout pass per frame. */
+        AbsoluteMargins,
+        /** Margins relative to each card's LinearLayout slot. Costs a layout pass per frame. */
+        LinearMargins,
+        /**
+         * translationY (and translationZ for the dragged card) render properties. Cards move
+         * without any layout pass and with sub-pixel precision.
+         */
+        Translation
     }
 
-    private enum State
+    /** Where the current gesture is: every touch event is handled in one pass from here. */
+    private enum Touch
     {
-        Intro,
-        List,
-        ListToSingle,
-        Single,
-        SingleToList,
-        Edit
+        /** No finger down. */
+        Idle,
+        /** Down and still within the touch slop: a tap, a long press or a scroll so far. */
+        Pressed,
+        /** Moved past the touch slop: the finger drags the camera. */
+        Scrolling,
+        /** Held in place on a card long enough: the finger drags the card. */
+        LongPressed
     }
-    private static final long INTRO_TO_LIST_TIME = 1800; // in milisecs
+
+    public static final String TAG = "WalletLayoutSolver";
+    private static final long INTRO_TO_LIST_TIME = 1800; // in milisecs, upper bound only
     private static final long LIST_TO_SINGLE_TIME = 2500; // in milisecs
     private static final long SINGLE_TO_LIST_TIME = 2500; // in milisecs
     private static final long CAMERA_BOUNCE_TIME = 1000; // in milisecs
     private static final long POSITION_ADJUST_TIME = 1000; // in milisecs
-    private static final float STACK_RATIO = 0.2f;
+    private static final long FLING_TIME = 4000; // in milisecs, upper bound only
     private static final int SINGLE_OUT_OFFSET = 300;
     private static final int CUSTOM_LONG_PRESS_DURATION = 250;
     private static final float CUSTOM_LONG_PRESS_DISTANCE_THRESHOLD = 20f;
-    private static final boolean USE_ABSOLUTE_LAYOUT = true;
+    private static final float EDIT_ELEVATION = 9999;
+    // Shared by every card when the stack orders its children itself; only the lift differs.
+    private static final float ITEM_ELEVATION = 8;
+    private static final float DEFAULT_UPDATE_THRESHOLD = 0.1f; // in pixels
+    // Spring frequencies, in rad/s. The animator durations above only cap the springs, which
+    // settle well before them.
+    private static final float TRANSITION_SPRING_FREQUENCY = 9.0f;
+    private static final float CAMERA_SPRING_FREQUENCY = 12.0f;
+    // A fling loses this share of its velocity per second: v(t) = v0 * e^(-rate * t).
+    private static final float FLING_DECAY_RATE = 3.0f; // in 1/sec
+    private static final float FLING_STOP_VELOCITY = 20.0f; // in pixels per sec
+    // Dragging a card into the top or bottom band of the stack scrolls it, faster deeper in.
+    private static final float EDGE_SCROLL_ZONE_RATIO = 0.15f; // of the stack height
+    private static final float EDGE_SCROLL_MAX_VELOCITY = 2500.0f; // in pixels per sec
+    private static final long DEFAULT_PREDICTION_HORIZON = 16; // in milisecs
+    // Cards a virtualized Edit keeps past the visible ones: the displaced card hops two slivers.
+    private static final int EDIT_RANGE_MARGIN = 2;
 
-    private boolean mIsWaitingForLongPress;
+    private Touch mTouch;
+    private float mDownX;
+    private float mDownY;
+    private float mLastTouchY;
+    private int mTouchSlopSquare;
+    private int mMinimumFlingVelocity;
+    private int mMaximumFlingVelocity;
+    private VelocityTracker mVelocityTracker;
+    // Drags the camera to where the finger will be when the next frame shows.
+    private final TouchPredictor mTouchPredictor;
+    // Posted on every down and removed on every other way out of Pressed, so no gesture can
+    // leave it pending.
+    private final Runnable mLongPress = new Runnable()
+    {
+        @Override
+        public void run()
+        {
+            if(mTouch == Touch.Pressed)
+            {
+                onCustomLongPress(mDownY);
+                if(mState == State.Edit)
+                {
+                    mTouch = Touch.LongPressed;
+                }
+            }
+        }
+    };
     private float mCameraY;
     private float mCameraYTarget;
+    private float mCameraVelocity; // in pixels per sec
     private State mState;
     private int mFocusedItem;
-    private ArrayList<Float> mItemPositions;
-    private ArrayList<Float> mItemPositionTargets;
+    private PositionStore mItemPositions;
+    private PositionStore mItemPositionTargets;
+    private PositionStore mItemVelocities; // in pixels per sec
+    // Offset last pushed to each card's view, NaN when it has to be pushed again.
+    private PositionStore mAppliedOffsets;
+    private HeightTree mItemHeights;
+    // Lays the stack out again on the next frame, after card heights changed.
+    private final FrameClock.Callback mRelayout = new FrameClock.Callback()
+    {
+        @Override
+        public void onFrame(long frameTimeNanos)
+        {
+            mFrameClock.remove(this);
+            if(mState == State.List)
+            {
+                reanimateItemPosition();
+                positionAdjust.awake();
+            }
+            else
+            {
+                updateStack();
+            }
+        }
+    };
+    // Scrolls the camera while a dragged card is held near an edge of the stack.
+    private final FrameClock.Callback mEdgeScroll = new FrameClock.Callback()
+    {
+        @Override
+        public void onFrame(long frameTimeNanos)
+        {
+            float dt = (frameTimeNanos - mEdgeScrollFrameTime) / 1e9f;
+            mEdgeScrollFrameTime = frameTimeNanos;
+            if(!scrollEdge(Math.max(0.0f, dt)))
+            {
+                mFrameClock.remove(this);
+            }
+        }
+    };
+    private long mEdgeScrollFrameTime;
+    private float mEditingTouchY; // in view space
+    private HitTester mHitTester;
+    private boolean mHitTesterDirty;
+    private float mUpdateThreshold;
+    private long mAppliedUpdates;
+    private long mSkippedUpdates;
     private int mEditingItem;
     private int mEditingItemTarget;
     private float mEditingCursor;
     private float mEditingCursorDy;
+    // Where the card displaced by the dragged one started its hop.
+    private float mEditingHopStart;
     private float mStackedHeight;
     private float mStackedHeightTarget;
+    private float mStackedHeightVelocity;
     private float mItemHeight;
+    private float mItemAlpha;
+    private float mItemAlphaVelocity;
+    private int mItemCount;
+    private View[] mItemViews;
+    private boolean[] mItemVisible;
+    private boolean mVirtualized;
+    // Cards solved, sprung and pushed to their views this frame: all of them, unless a
+    // virtualized stack is in a List layout, where it narrows to the cards on screen.
+    private int mRangeBegin;
+    private int mRangeEnd;
+    // Cards that may still hold a view or a visible flag from an earlier frame.
+    private int mViewBegin;
+    private int mViewEnd;
+    // Set when only the cards in [mLiveBegin, mLiveEnd) were moved since the positions were
+    // last complete; the others are still to be put on the List layout.
+    private boolean mItemPositionsPartial;
+    private int mLiveBegin;
+    private int mLiveEnd;
+    private ArrayList<View> mRecycledViews;
+    // With a StackFrameLayout, views stay at the child index they were added at: these map each
+    // card and each pooled view to it, and the drawing order follows the cards instead.
+    private boolean mCustomDrawingOrder;
+    private int[] mItemChildren;
+    private int[] mRecycledChildren;
+    private int[] mDrawingOrder;
+    private boolean[] mChildOrdered;
+    private boolean mDrawingOrderDirty;
+    private AsyncLayoutInflater mAsyncInflater;
+    private int mPopulateGeneration;
+    private int mPopulateCount;
+    private int mPendingInflations;
+    private boolean mIntroPending;
 
+    private RenderMode mRenderMode;
     private ViewGroup mStack;
     private Activity mParentActivity;
     private int mItemTemplate;
-    private GestureDetector mGestureDetector;
-    private MotionEvent mCurrentDownEvent;
 
+    private final FrameClock mFrameClock;
+    private final FrameStats mFrameStats;
+    private FrameStats.TouchLatencyListener mTouchLatencyListener;
+    private final Spring mTransitionSpring;
+    private final Spring mCameraSpring;
     private Animator introToList;
     private Animator singleToList;
     private Animator listToSingle;
     private Animator cameraBounce;
     private Animator positionAdjust;
+    private Animator fling;
 
     public WalletLayoutSolver()
     {
         mCameraY = 0.0f;
         mState = State.Intro;
         mFocusedItem = -1;
-        mIsWaitingForLongPress = false;
-        introToList = new Animator(INTRO_TO_LIST_TIME){
+        mTouch = Touch.Idle;
+        mTouchPredictor = new TouchPredictor(DEFAULT_PREDICTION_HORIZON * 1000000L);
+        mRenderMode = RenderMode.Translation;
+        mFrameClock = new FrameClock(new ChoreographerScheduler());
+        mFrameStats = new FrameStats();
+        mTransitionSpring = new Spring(TRANSITION_SPRING_FREQUENCY);
+        mCameraSpring = new Spring(CAMERA_SPRING_FREQUENCY);
+        introToList = new Animator(mFrameClock, INTRO_TO_LIST_TIME){
             @Override
             public void onAwake()
             {
@@ -176,6 +352,8 @@ public class WalletLayoutSolver extends GestureDetector.SimpleOnGestureListener
                 recalculateItemHeight();
                 mStackedHeightTarget = mStackedHeight;
                 mStackedHeight = mItemHeight;
+                mStackedHeightVelocity = 0.0f;
+                mItemAlphaVelocity = 0.0f;
                 mCameraYTarget = 0;
             }
             @Override
@@ -189,32 +367,44 @@ public class WalletLayoutSolver extends GestureDetector.SimpleOnGestureListener
             @Override
             public void onUpdate(float time)
             {
-                mStackedHeight = CMath.lerp(mStackedHeight, mStackedHeightTarget, time);
-                if(mStack.getChildCount() > 0)
+                mTransitionSpring.setTimeStep(getFrameDelta());
+                float h = mStackedHeight;
+                mStackedHeight = mTransitionSpring.position(h, mStackedHeightVelocity,
+                        mStackedHeightTarget);
+                mStackedHeightVelocity = mTransitionSpring.velocity(h, mStackedHeightVelocity,
+                        mStackedHeightTarget);
+                float alpha = mTransitionSpring.position(mItemAlpha, mItemAlphaVelocity, 1.0f);
+                mItemAlphaVelocity = mTransitionSpring.velocity(mItemAlpha, mItemAlphaVelocity,
+                        1.0f);
+                // Alpha is tested for rest in steps of 1/255, the spring thresholds are pixels.
+                if(Spring.isAtRest(mStackedHeight, mStackedHeightVelocity, mStackedHeightTarget) &&
+                        Spring.isAtRest(alpha*255.0f, mItemAlphaVelocity*255.0f, 255.0f))
                 {
-                    float alpha = mStack.getChildAt(0).getAlpha();
-                    alpha = CMath.lerp(alpha, 1.0f, time);
-                    for (int i = 0; i < mStack.getChildCount(); i++) {
-                        View view = mStack.getChildAt(i);
-                        view.setAlpha(alpha);
-                    }
+                    mStackedHeight = mStackedHeightTarget;
+                    alpha = 1.0f;
+                    settle();
                 }
+                setItemAlpha(alpha);
                 recalculateItemPosition();
             }
         };
-        singleToList = new Animator(LIST_TO_SINGLE_TIME){
+        singleToList = new Animator(mFrameClock, LIST_TO_SINGLE_TIME){
             @Override
             public void onAwake()
             {
                 mCameraYTarget = calculateCameraClamped();
-                mStackedHeight = mItemHeight*STACK_RATIO;
+                mStackedHeight = WalletLayoutEngine.stackHeight(mItemHeight);
                 reanimateItemPosition();
                 mState = State.SingleToList;
-                onLeaveCard(mFocusedItem, mStack.getChildAt(mFocusedItem));
+                onLeaveCard(mFocusedItem, getItemView(mFocusedItem));
             }
             @Override
             public void onDestroy(boolean premature)
             {
+                if(!premature)
+                {
+                    restItemPositions();
+                }
                 mFocusedItem = -1;
                 mState = State.List;
                 updateStack();
@@ -222,66 +412,59 @@ public class WalletLayoutSolver extends GestureDetector.SimpleOnGestureListener
             @Override
             public void onUpdate(float time)
             {
-                mCameraY = CMath.lerp(mCameraY, mCameraYTarget, time);
-                for(int i = 0;i<mStack.getChildCount();i++) {
-                    float y = mItemPositions.get(i);
-                    float target = mItemPositionTargets.get(i);
-                    y = CMath.lerp(y, target, time);
-                    mItemPositions.set(i, y);
-                }
+                boolean rest = springCamera(mTransitionSpring, getFrameDelta());
+                rest &= springItemPositions(getFrameDelta());
                 updateStack();
+                if(rest)
+                {
+                    settle();
+                }
             }
         };
-        listToSingle = new Animator(SINGLE_TO_LIST_TIME){
+        listToSingle = new Animator(mFrameClock, SINGLE_TO_LIST_TIME){
             @Override
             public void onAwake()
             {
-                for(int i = 0;i<mStack.getChildCount();i++)
+                solveSkippedItemPositions();
+                for(int i = 0;i<mItemCount;i++)
                 {
-                    float y = mCameraY;
-                    if(i < mFocusedItem)
-                    {
-                        y -= mStack.getHeight()*2.0f;
-                        y -= (mFocusedItem - i)*mStackedHeight;
-                    }
-                    if(i > mFocusedItem)
-                    {
-                        y += mStack.getHeight()* 2.0f;
-                        y += (i - mFocusedItem)*mStackedHeight;
-                    }
+                    float y = WalletLayoutEngine.singlePosition(i, mFocusedItem, mCameraY,
+                            mStackedHeight, mStack.getHeight());
                     mItemPositionTargets.set(i, y);
                 }
                 mState = State.ListToSingle;
-                //mCameraYTarget = CMath.clamp(0, mStackedHeight * mStack.getChildCount(), mCameraYTarget);
-                onEnterCard(mFocusedItem, mStack.getChildAt(mFocusedItem));
+                //mCameraYTarget = CMath.clamp(0, mStackedHeight * mItemCount, mCameraYTarget);
+                onEnterCard(mFocusedItem, getItemView(mFocusedItem));
             }
             @Override
             public void onDestroy(boolean premature)
             {
+                if(!premature)
+                {
+                    restItemPositions();
+                }
                 mState = State.Single;
                 updateStack();
             }
             @Override
             public void onUpdate(float time)
             {
-                //mCameraY = CMath.lerp(mCameraY, mCameraYTarget, time);
-                for(int i = 0;i<mStack.getChildCount();i++) {
-                    float y = mItemPositions.get(i);
-                    float target = mItemPositionTargets.get(i);
-                    y = CMath.lerp(y, target, time);
-                    mItemPositions.set(i, y);
-                }
+                boolean rest = springItemPositions(getFrameDelta());
                 updateStack();
+                if(rest)
+                {
+                    settle();
+                }
             }
         };
-        cameraBounce = new Animator(CAMERA_BOUNCE_TIME){
+        cameraBounce = new Animator(mFrameClock, CAMERA_BOUNCE_TIME){
             @Override
             public void onAwake()
             {
                 if(mState != State.Single) {
                     mCameraYTarget = calculateCameraClamped();
                 }
-                if(Math.abs(mCameraYTarget - mCameraY) < 0.01f)
+                if(Spring.isAtRest(mCameraY, mCameraVelocity, mCameraYTarget))
                 {
                     destroy();
                 }
@@ -289,7 +472,7 @@ public class WalletLayoutSolver extends GestureDetector.SimpleOnGestureListener
             @Override
             public void onUpdate(float time)
             {
-                mCameraY = CMath.lerp(mCameraY, mCameraYTarget, time);
+                boolean rest = springCamera(mCameraSpring, getFrameDelta());
                 calculateStackStretch();
                 if(mState == State.List) {
                     recalculateItemPosition();
@@ -298,349 +481,1405 @@ public class WalletLayoutSolver extends GestureDetector.SimpleOnGestureListener
                 {
                     updateStack();
                 }
+                if(rest)
+                {
+                    settle();
+                }
             }
         };
-        positionAdjust = new Animator(POSITION_ADJUST_TIME){
+        positionAdjust = new Animator(mFrameClock, POSITION_ADJUST_TIME){
+            @Override
+            public void onAwake()
+            {
+                if(mState == State.Edit)
+                {
+                    mEditingHopStart = mItemPositions.get(mEditingItem);
+                }
+            }
+            @Override
+            public void onDestroy(boolean premature)
+            {
+                if(!premature && mState != State.Edit)
+                {
+                    restItemPositions();
+                    updateStack();
+                }
+            }
             @Override
             public void onUpdate(float time)
             {
-                for(int i = 0;i<mStack.getChildCount();i++)
+                if(mState == State.Edit)
                 {
-                    float y = mItemPositions.get(i);
-                    float target = mItemPositionTargets.get(i);
-                    if(mState == State.Edit)
+                    // Only the dragged card and the card it displaced move while editing. The
+                    // displaced card hops over the dragged one along a fixed-time curve.
+                    mItemPositions.set(mEditingItemTarget, mEditingCursor);
+                    if(mEditingItem != mEditingItemTarget)
                     {
-                        if(i == mEditingItemTarget)
-                        {
-                            mItemPositions.set(i, mEditingCursor);
+                        float y;
+                        float target = mItemPositionTargets.get(mEditingItem);
+                        float target_mid = target + mStackedHeight*2.0f;
+                        if(time < 0.5f) {
+                            y = CMath.lerpInvert(mEditingHopStart, target_mid, time*2.0f);
                         }
-                        else if(i == mEditingItem)
-                        {
-                            float target_mid = mItemPositionTargets.get(i) + mStackedHeight*2.0f;
-                            if(time < 0.5f) {
-                                y = CMath.lerpInvert(y, target_mid, time*2.0f);
-                            }
-                            else {
-                                y = CMath.lerp(y, target, (time-0.5f)*2.0f);
-                            }
+                        else {
+                            y = CMath.lerp(target_mid, target, (time-0.5f)*2.0f);
                         }
+                        mItemPositions.set(mEditingItem, y);
                     }
-                    else
-                    {
-                        y = CMath.lerp(y, target, time);
-                    }
-                    mItemPositions.set(i,y);
+                }
+                else if(springItemPositions(getFrameDelta()))
+                {
+                    settle();
                 }
                 updateStack();
             }
         };
-        mItemPositions = new ArrayList<>();
-        mItemPositionTargets = new ArrayList<>();
+        fling = new Animator(mFrameClock, FLING_TIME){
+            @Override
+            public void onUpdate(float time)
+            {
+                // Integrates the exponential decay exactly over the frame.
+                float decay = (float) Math.exp(-FLING_DECAY_RATE * getFrameDelta());
+                mCameraY += mCameraVelocity * (1.0f - decay) / FLING_DECAY_RATE;
+                mCameraVelocity *= decay;
+                mCameraYTarget = mCameraY;
+                calculateStackStretch();
+                recalculateItemPosition();
+                if(mCameraY != calculateCameraClamped())
+                {
+                    // Past either end: the bounce takes the remaining velocity into the
+                    // overscroll and springs back.
+                    settle();
+                    cameraBounce.awake();
+                }
+                else if(Math.abs(mCameraVelocity) < FLING_STOP_VELOCITY)
+                {
+                    mCameraVelocity = 0.0f;
+                    settle();
+                }
+            }
+        };
+        introToList.setStats(mFrameStats.newTransition("IntroToList"));
+        singleToList.setStats(mFrameStats.newTransition("SingleToList"));
+        listToSingle.setStats(mFrameStats.newTransition("ListToSingle"));
+        cameraBounce.setStats(mFrameStats.newTransition("CameraBounce"));
+        positionAdjust.setStats(mFrameStats.newTransition("PositionAdjust"));
+        fling.setStats(mFrameStats.newTransition("Fling"));
+        mItemPositions = new PositionStore();
+        mItemPositionTargets = new PositionStore();
+        mItemVelocities = new PositionStore();
+        mAppliedOffsets = new PositionStore();
+        mItemHeights = new HeightTree();
+        mHitTester = new HitTester();
+        mHitTesterDirty = true;
+        mUpdateThreshold = DEFAULT_UPDATE_THRESHOLD;
+        mItemViews = new View[0];
+        mItemVisible = new boolean[0];
+        mRecycledViews = new ArrayList<>();
+        mItemChildren = new int[0];
+        mRecycledChildren = new int[4];
+        mDrawingOrder = new int[0];
+        mChildOrdered = new boolean[0];
     }
 
-    public WalletLayoutSolver setParentActivity(Activity activity)
+    /**
+     * Returns the clock all transitions are ticked by. Swap its scheduler to drive the
+     * transitions from something other than the display vsync, e.g. a test.
+     */
+    public FrameClock getFrameClock()
     {
-        mParentActivity = activity;
-        mGestureDetector = new GestureDetector(mParentActivity, this);
-        return this;
+        return mFrameClock;
     }
 
-    public WalletLayoutSolver setStackLayout(ViewGroup layout)
+    /** Returns the frame statistics of every transition and of updateStack and layout. */
+    public FrameStats getFrameStats()
     {
-        mStack = layout;
-        mStack.setClickable(true);
-        mStack.setFocusable(true);
-        return this;
+        return mFrameStats;
     }
 
-    public WalletLayoutSolver setItemTemplate(int id)
+    /** Reports the frame count and costs of each transition run as it ends. */
+    public WalletLayoutSolver setOnFrameStatsListener(FrameStats.Listener listener)
     {
-        mItemTemplate = id;
+        mFrameStats.setListener(listener);
         return this;
     }
 
-    public void onBind(int index, View view)
+    /**
+     * Reports the touch-to-frame latency percentiles after every gesture, once its last frame
+     * is drawn. They also go to the logger chain.
+     */
+    public WalletLayoutSolver setOnTouchLatencyListener(FrameStats.TouchLatencyListener listener)
     {
+        mTouchLatencyListener = listener;
+        return this;
     }
 
-    public void onEnterDetailConfirmed(int index)
+    /** Prints the aggregated frame statistics through the logger chain. */
+    public void dumpFrameStats()
     {
+        if(Log.isLoggable(Log.INFO))
+        {
+            Log.i(TAG, mFrameStats.appendTo(new StringBuilder()).toString());
+        }
     }
 
-    public WalletLayoutSolver populate(int count)
+    public WalletLayoutSolver setParentActivity(Activity activity)
     {
-        if(mStack == null)
-        {
-            return this;
-        }
-        int delta = count - mStack.getChildCount();
-        for(int i = 0;i < delta;i++)
-        {
-            try
-            {
-                mParentActivity.getLayoutInflater().inflate(mItemTemplate, mStack);
-                mItemPositions.add(0.0f);
-                mItemPositionTargets.add(0.0f);
-            }
-            catch (Exception e)
-            {
-                return this;
-            }
-        }
-        for(int i = delta;i < 0;i++)
-        {
-            mStack.removeViewAt(mStack.getChildCount() - 1);
-            mItemPositions.remove(mItemPositions.size() - 1);
-            mItemPositionTargets.remove(mItemPositionTargets.size() - 1);
-        }
-        for(int i = 0;i<mStack.getChildCount();i++)
+        mParentActivity = activity;
+        ViewConfiguration configuration = ViewConfiguration.get(activity);
+        int slop = configuration.getScaledTouchSlop();
+        mTouchSlopSquare = slop * slop;
+        mMinimumFlingVelocity = configuration.getScaledMinimumFlingVelocity();
+        mMaximumFlingVelocity = configuration.getScaledMaximumFlingVelocity();
+        float refreshRate = activity.getWindowManager().getDefaultDisplay().getRefreshRate();
+        if(refreshRate > 0)
         {
-            View view = mStack.getChildAt(i);
-            view.setAlpha(0.0f);
-            view.setElevation(i);
-            onBind(i, view);
+            mFrameStats.setFrameBudgetNanos((long) (1000000000L / refreshRate));
         }
-        updateStack();
-        mStack.postDelayed(new Runnable()
-        {
-            @Override
-            public void run()
-            {
-                for(int i = 0;i<mStack.getChildCount();i++)
-                {
-                    View view = mStack.getChildAt(i);
-                    view.setAlpha(1.0f);
-                }
-                recalculateItemHeight();
-                introToList.awake();
-                recalculateItemHeight();
-                mStack.setOnTouchListener(new View.OnTouchListener() {
-                    @Override
-                    public boolean onTouch(View v, MotionEvent event) {
-                        mGestureDetector.onTouchEvent(event);
-                        onTouchEvent(event);
-                        return false;
-                    }
-                });
-                updateStack();
-            }
-        }, 200);
         return this;
     }
 
-    @Override
-    public boolean onSingleTapUp(MotionEvent e) {
-        // Up motion completing a single tap occurred.
-        return false;
-    }
-
-    @Override
-    public void onLongPress(MotionEvent e) {
-        // Touch has been long enough to indicate a long press.
-        // Does not indicate motion is complete yet (no up event necessarily)
-
-    }
-
-    public void onCustomLongPress(MotionEvent e)
+    /**
+     * Sets how far ahead, at most, a scroll extrapolates the finger to meet the next frame; 0
+     * turns the prediction off. The prediction also turns itself off while the finger slows
+     * down.
+     */
+    public WalletLayoutSolver setPredictionHorizon(long millis)
     {
-        if(mState != State.List && mState != State.Single)
-        {
-            return;
-        }
-        float y = e.getY() + mCameraY;
-        if(y < 0 || y > mStackedHeight *(mStack.getChildCount() - 1) + mItemHeight)
-        {
-            return;
-        }
-        if(mState == State.Single)
-        {
-            onLeaveCard(mFocusedItem, mStack.getChildAt(mFocusedItem));
-        }
-        int index = mState == State.Single?mFocusedItem:((int) (y / mStackedHeight));
-        index = CMath.clamp(0, mStack.getChildCount() - 1, index);
-        mEditingCursor = index * mStackedHeight;
-        mEditingCursorDy = y - mEditingCursor;
-        reanimateItemPosition();
-        editOn(index);
+        mTouchPredictor.setHorizon(millis * 1000000L);
+        return this;
     }
 
-
-    private void recalculateItemHeight()
+    public WalletLayoutSolver setStackLayout(ViewGroup layout)
     {
-        if(mStack.getChildCount() > 0)
+        mStack = layout;
+        mStack.setClickable(true);
+        mStack.setFocusable(true);
+        // The velocity tracker is obtained on the first touch, cleared on every down, and
+        // handed back to the pool once the stack leaves the window.
+        mStack.addOnAttachStateChangeListener(new View.OnAttachStateChangeListener()
         {
-            View img = mStack.getChildAt(0);
-            mItemHeight = img.getBottom() - img.getTop();
-            float h = mItemHeight * STACK_RATIO;
-            if(mState != State.Intro)
-            {
-                mStackedHeight = h;
-            }
-            else
+            @Override
+            public void onViewAttachedToWindow(View v)
             {
-                mStackedHeightTarget = h;
             }
-        }
-    }
-    private void recalculateItemElevation()
-    {
-        for(int i = 0;i<mStack.getChildCount();i++)
-        {
-            View item = mStack.getChildAt(i);
-            item.setElevation(i);
-        }
-    }
 
-    public void onTouchEvent(MotionEvent e)
-    {
-        if (e.getAction() == MotionEvent.ACTION_DOWN)
-        {
-            mIsWaitingForLongPress = true;
-            mCurrentDownEvent = MotionEvent.obtain(e);
-            final Handler handler = new Handler(Looper.getMainLooper());
-            handler.postDelayed(new Runnable() {
-                @Override
-                public void run()
+            @Override
+            public void onViewDetachedFromWindow(View v)
+            {
+                if(mVelocityTracker != null)
                 {
-                    if (mIsWaitingForLongPress) {
-                        onCustomLongPress(mCurrentDownEvent);
-                    }
+                    mVelocityTracker.recycle();
+                    mVelocityTracker = null;
                 }
-            }, CUSTOM_LONG_PRESS_DURATION);
-            cameraBounce.destroy();
-            if(mState == State.SingleToList) {
-                singleToList.destroy();
             }
-            if(mState == State.ListToSingle) {
-                listToSingle.destroy();
-            }
-        }
-        else if (e.getAction() == MotionEvent.ACTION_UP)
+        });
+        mStack.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener()
         {
-            mIsWaitingForLongPress = false;
-            if(mState == State.List)
+            @Override
+            public boolean onPreDraw()
             {
-                cameraBounce.awake();
+                mFrameStats.onPreDraw();
+                return true;
             }
-            if(mState == State.Single)
+        });
+        mStack.getViewTreeObserver().addOnDrawListener(new ViewTreeObserver.OnDrawListener()
+        {
+            @Override
+            public void onDraw()
             {
-                float item_y = mItemPositions.get(mFocusedItem);
-                float delta = item_y - mCameraY;
-                if(delta > SINGLE_OUT_OFFSET)
-                {
-                    singleToList.awake();
-                }
-                else
+                if(mFrameStats.onDraw(System.nanoTime()))
                 {
-                    mCameraYTarget = mItemPositions.get(mFocusedItem);
-                    cameraBounce.awake();
+                    reportTouchLatency();
                 }
             }
-        }
-        else if (e.getAction() == MotionEvent.ACTION_MOVE)
+        });
+        // Cards are measured against the stack, so nothing is measured or started before its
+        // first layout, and everything is measured again when its size changes.
+        mStack.addOnLayoutChangeListener(new View.OnLayoutChangeListener()
         {
-            if(mIsWaitingForLongPress)
+            @Override
+            public void onLayoutChange(View v, int left, int top, int right, int bottom,
+                                       int oldLeft, int oldTop, int oldRight, int oldBottom)
             {
-                float dx = mCurrentDownEvent.getX() - e.getX();
-                float dy = mCurrentDownEvent.getY() - e.getY();
-                float d = dx * dx + dy * dy;
-                if (d > CUSTOM_LONG_PRESS_DISTANCE_THRESHOLD)
+                if(right - left != oldRight - oldLeft || bottom - top != oldBottom - oldTop
+                        || mItemHeight <= 0)
                 {
-                    mIsWaitingForLongPress = false;
+                    onStackResized();
                 }
             }
-        }
-        if(mState != State.Edit)
-        {
-            return;
-        }
-        if (e.getAction() == MotionEvent.ACTION_UP || e.getAction() == MotionEvent.ACTION_CANCEL)
-        {
-            editOff();
-            updateStack();
-        }
-        else if(e.getAction() == MotionEvent.ACTION_MOVE)
-        {
-            float y = e.getY() + mCameraY;
-            recalculateEditIndex(y);
-        }
-    }
-
-    private void recalculateEditIndex(float cursor)
-    {
-        mEditingCursor = cursor - mEditingCursorDy;
-        mItemPositions.set(mEditingItemTarget, mEditingCursor);
-        float sensor_cursor = mEditingCursor + mStackedHeight/2;
-        int index = (int)Math.floor(sensor_cursor / mStackedHeight);
-        index = CMath.clamp(-1,mStack.getChildCount() - 1, index);
-        if(mEditingItemTarget != index)
+        });
+        mCustomDrawingOrder = layout instanceof StackFrameLayout;
+        if(mCustomDrawingOrder)
         {
-            mEditingItem = mEditingItemTarget;
-            View item = mStack.getChildAt(mEditingItemTarget);
-            mStack.removeViewAt(mEditingItemTarget);
-            mStack.addView(item,index);
-            item.setElevation(index);
-            float position = mItemPositions.get(mEditingItemTarget);
-            mItemPositions.remove(mEditingItemTarget);
-            mItemPositions.add(index, position);
-            mEditingItemTarget = index;
-            positionAdjust.awake();
-            for(int i = 0; i<mStack.getChildCount();i++)
+            ((StackFrameLayout) layout).setPassListener(new StackFrameLayout.PassListener()
             {
-                if(i >= Math.min(mEditingItemTarget, mEditingItem) &&
-                        i <= Math.max(mEditingItemTarget, mEditingItem))
+                @Override
+                public void onPass(long nanos)
                 {
-                    continue;
+                    mFrameStats.recordLayoutPass(nanos);
                 }
-                mItemPositions.set(i, mItemPositionTargets.get(i));
-            }
+            });
+            ((StackFrameLayout) layout).setDrawingOrder(new StackFrameLayout.DrawingOrder()
+            {
+                @Override
+                public int getChildDrawingOrder(int childCount, int drawingPosition)
+                {
+                    return findChildDrawingOrder(childCount, drawingPosition);
+                }
+            });
         }
-        updateStack();
+        return this;
     }
-    private void recalculateItemPosition()
+
+    /**
+     * Selects how cards are moved, {@link RenderMode#Translation} by default. Call before
+     * {@link #populate(int)}.
+     */
+    public WalletLayoutSolver setRenderMode(RenderMode mode)
     {
-        for(int i = 0; i< mStack.getChildCount(); i++)
-        {
-            float pos = Math.max(i * mStackedHeight, calculateCameraClamped());
-            mItemPositions.set(i, pos);
-        }
-        updateStack();
+        mRenderMode = mode;
+        mAppliedOffsets.fill(Float.NaN);
+        return this;
     }
 
-    private void reanimateItemPosition()
+    /**
+     * Sets how far, in pixels, a card has to move before {@link #updateStack()} pushes its new
+     * offset to the view. Margin modes only ever push whole pixels.
+     */
+    public WalletLayoutSolver setUpdateThreshold(float pixels)
     {
-        for(int i = 0; i< mStack.getChildCount(); i++)
-        {
-            float pos = Math.max(i * mStackedHeight, calculateCameraClamped());
-            mItemPositionTargets.set(i, pos);
-        }
-        //positionAdjust.awake();
+        mUpdateThreshold = pixels;
+        return this;
     }
 
-    private float calculateStackHeight()
+    /** Number of card offsets pushed to views by {@link #updateStack()}. */
+    public long getAppliedUpdateCount()
     {
-        return mItemHeight * STACK_RATIO;
+        return mAppliedUpdates;
     }
 
-    private float calculateCameraClamped()
+    /** Number of card offsets {@link #updateStack()} left alone because they had not changed. */
+    public long getSkippedUpdateCount()
     {
-        return CMath.clamp(0.0f, calculateCameraMax(), mCameraY);
+        return mSkippedUpdates;
     }
 
-    private void calculateStackStretch()
+    public void resetUpdateCounts()
     {
-        //mCameraY = calculateCameraClamped();
-        float delta = mCameraY - calculateCameraClamped();
-        float stretch_amount = 0.05f*delta;
-        mStackedHeight = calculateStackHeight() - stretch_amount;
-        mStackedHeight = CMath.clamp(1.0f, mItemHeight, mStackedHeight);
+        mAppliedUpdates = 0;
+        mSkippedUpdates = 0;
     }
 
-
-    @Override
-    public boolean onScroll(MotionEvent e1, MotionEvent e2, float distanceX, float distanceY)
+    /**
+     * When virtualized, only the cards that can be seen are materialized: views are taken
+     * from a recycle pool (or inflated when it is empty) and bound with
+     * {@link #onBind(int, View)} as cards come into view, and returned to the pool when they
+     * leave it. Memory and per-frame cost then follow the number of visible cards rather than
+     * the size of the wallet. Requires a FrameLayout stack. Call before {@link #populate(int)}.
+     */
+    public WalletLayoutSolver setVirtualized(boolean virtualized)
     {
+        mVirtualized = virtualized;
+        return this;
+    }
+
+    public WalletLayoutSolver setItemTemplate(int id)
+    {
+        mItemTemplate = id;
+        return this;
+    }
+
+    /**
+     * Called when {@link #populate(int)} starts, before any card is inflated or bound, so
+     * the data the cards show can be prepared ahead of them.
+     */
+    public void onPopulate(int count)
+    {
+    }
+
+    public void onBind(int index, View view)
+    {
+    }
+
+    public void onEnterDetailConfirmed(int index)
+    {
+    }
+
+    /**
+     * Called each time a dragged card changes index, so that the data backing
+     * {@link #onBind(int, View)} can be reordered to match.
+     */
+    public void onMoveCard(int from, int to)
+    {
+    }
+
+    public int getItemCount()
+    {
+        return mItemCount;
+    }
+
+    /**
+     * Returns the view showing a card, or null when the stack is virtualized and the card is
+     * not materialized.
+     */
+    public View getItemView(int index)
+    {
+        return index >= 0 && index < mItemCount ? mItemViews[index] : null;
+    }
+
+    /**
+     * Sets the height of a card that is not as tall as the item template, e.g. from
+     * {@link #onBind(int, View)}. Costs O(log n); the stack is laid out again on the next frame,
+     * once for any number of calls.
+     */
+    public WalletLayoutSolver setItemHeight(int index, float height)
+    {
+        mItemHeights.set(index, height);
+        mHitTesterDirty = true;
+        mFrameClock.add(mRelayout);
+        return this;
+    }
+
+    public float getItemHeight(int index)
+    {
+        return mItemHeights.get(index);
+    }
+
+    /**
+     * Sets the number of cards. Missing cards are inflated off the main thread and join the
+     * stack as they arrive; the intro starts as soon as the first screenful is ready.
+     */
+    public WalletLayoutSolver populate(int count)
+    {
+        if(mStack == null)
+        {
+            return this;
+        }
+        onPopulate(count);
+        // Results of an earlier populate still in flight are dropped on arrival.
+        mPopulateGeneration++;
+        mPendingInflations = 0;
+        mPopulateCount = count;
+        ensureItemCapacity(count);
+        if(mVirtualized)
+        {
+            for(int i = count;i < mItemCount;i++)
+            {
+                if(mItemViews[i] != null)
+                {
+                    recycle(i);
+                }
+            }
+            mItemCount = count;
+            mViewBegin = 0;
+            mViewEnd = count;
+        }
+        else
+        {
+            while(mItemCount > count)
+            {
+                mStack.removeView(mItemViews[--mItemCount]);
+                mItemViews[mItemCount] = null;
+                onChildRemoved(mItemChildren[mItemCount]);
+            }
+        }
+        mItemPositions.resize(mItemCount, 0.0f);
+        mItemPositionsPartial = false;
+        mItemPositionTargets.resize(mItemCount, 0.0f);
+        mItemVelocities.resize(mItemCount, 0.0f);
+        mItemVelocities.fill(0.0f);
+        // Cards are rebound below, and may set their own heights again from onBind.
+        mItemHeights.resize(mItemCount);
+        mItemHeights.clear();
+        mAppliedOffsets.resize(mItemCount, Float.NaN);
+        mAppliedOffsets.fill(Float.NaN);
+        mItemAlpha = 0.0f;
+        for(int i = 0;i<mItemCount;i++)
+        {
+            View view = mItemViews[i];
+            if(view == null)
+            {
+                continue;
+            }
+            view.setAlpha(0.0f);
+            applyItemElevation(view, i);
+            onBind(i, view);
+        }
+        mIntroPending = true;
+        if(mVirtualized)
+        {
+            // Only the pool is filled ahead of time: one view to measure the item height with,
+            // then the rest of a screenful once that height is known.
+            if(count > 0 && mRecycledViews.isEmpty() && findAnyItemView() == null)
+            {
+                inflateAsync(1);
+            }
+        }
+        else
+        {
+            inflateAsync(count - mItemCount);
+        }
+        updateStack();
+        startIntroIfReady();
+        return this;
+    }
+
+    private void inflateAsync(int count)
+    {
+        if(count <= 0)
+        {
+            return;
+        }
+        if(mAsyncInflater == null)
+        {
+            mAsyncInflater = new AsyncLayoutInflater(mParentActivity);
+        }
+        final int generation = mPopulateGeneration;
+        AsyncLayoutInflater.OnInflateFinishedListener listener =
+                new AsyncLayoutInflater.OnInflateFinishedListener()
+        {
+            @Override
+            public void onInflateFinished(View view, int resid, ViewGroup parent)
+            {
+                if(generation != mPopulateGeneration)
+                {
+                    return;
+                }
+                mPendingInflations--;
+                onItemInflated(view);
+            }
+        };
+        mPendingInflations += count;
+        for(int i = 0;i < count;i++)
+        {
+            mAsyncInflater.inflate(mItemTemplate, mStack, listener);
+        }
+    }
+
+    /** Adds a card inflated by {@link #inflateAsync(int)}, on the main thread. */
+    private void onItemInflated(View view)
+    {
+        if(mItemHeight <= 0 && isStackLaidOut())
+        {
+            measureItemHeight(view);
+        }
+        mStack.addView(view);
+        int child = mStack.getChildCount() - 1;
+        mDrawingOrderDirty = true;
+        if(mVirtualized)
+        {
+            view.setVisibility(View.INVISIBLE);
+            addRecycledView(view, child);
+            fillPool();
+        }
+        else
+        {
+            int index = mItemCount++;
+            mItemViews[index] = view;
+            mItemChildren[index] = child;
+            float y = calculateJoinPosition(index);
+            mItemPositions.add(y);
+            mItemPositionTargets.add(y);
+            mItemVelocities.add(0.0f);
+            mItemHeights.add();
+            mAppliedOffsets.add(Float.NaN);
+            view.setAlpha(mItemAlpha);
+            applyItemElevation(view, index);
+            onBind(index, view);
+        }
+        updateStack();
+        startIntroIfReady();
+    }
+
+    private boolean isStackLaidOut()
+    {
+        return mStack.getWidth() > 0 && mStack.getHeight() > 0;
+    }
+
+    /**
+     * Measures the cards again against the new size of the stack, and starts what was waiting
+     * for its first layout.
+     */
+    private void onStackResized()
+    {
+        if(!isStackLaidOut())
+        {
+            return;
+        }
+        View view = findAnyItemView();
+        if(view == null && !mRecycledViews.isEmpty())
+        {
+            view = mRecycledViews.get(0);
+        }
+        if(view != null)
+        {
+            measureItemHeight(view);
+        }
+        if(mVirtualized)
+        {
+            fillPool();
+        }
+        if(mState == State.List)
+        {
+            recalculateItemPosition();
+        }
+        else
+        {
+            updateStack();
+        }
+        startIntroIfReady();
+    }
+
+    /** Inflates the rest of a screenful of pooled views, once the item height is known. */
+    private void fillPool()
+    {
+        if(mPendingInflations == 0 && mItemHeight > 0 && isStackLaidOut())
+        {
+            inflateAsync(calculateScreenfulCount() - mRecycledViews.size());
+        }
+    }
+
+    /** Measures a card that has not been laid out yet against the width of the stack. */
+    private void measureItemHeight(View view)
+    {
+        int width = View.MeasureSpec.makeMeasureSpec(mStack.getWidth(), View.MeasureSpec.EXACTLY);
+        int height = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
+        view.measure(width, height);
+        applyItemHeight(view.getMeasuredHeight());
+    }
+
+    /** Returns how many cards the List layout shows on one screen, at most the populate count. */
+    private int calculateScreenfulCount()
+    {
+        float viewport = mStack.getHeight();
+        if(mItemHeight <= 0 || viewport <= 0)
+        {
+            return mPopulateCount;
+        }
+        float stacked = WalletLayoutEngine.stackHeight(mItemHeight);
+        int screenful = (int) Math.ceil(Math.max(0, viewport - mItemHeight) / stacked) + 1;
+        return Math.min(mPopulateCount, screenful);
+    }
+
+    /** Returns where a card joining the stack rests in the current state. */
+    private float calculateJoinPosition(int index)
+    {
+        if(mState == State.Single || mState == State.ListToSingle)
+        {
+            return WalletLayoutEngine.singlePosition(index, mFocusedItem, mCameraY, mStackedHeight,
+                    mStack.getHeight());
+        }
+        return WalletLayoutEngine.listPosition(mItemHeights, index, calculateCameraClamped(),
+                mStackedHeight);
+    }
+
+    private void startIntroIfReady()
+    {
+        if(!mIntroPending || !isStackLaidOut())
+        {
+            // Laid out, the stack calls back from onStackResized.
+            return;
+        }
+        if(mPendingInflations > 0)
+        {
+            // A virtualized stack only ever asks for a screenful, so it waits for all of it.
+            if(mVirtualized || mItemHeight <= 0 || mItemCount < calculateScreenfulCount())
+            {
+                return;
+            }
+        }
+        mIntroPending = false;
+        setItemAlpha(1.0f);
+        introToList.awake();
+        mStack.setOnTouchListener(new View.OnTouchListener() {
+            @Override
+            public boolean onTouch(View v, MotionEvent event) {
+                onTouchEvent(event);
+                return false;
+            }
+        });
+        updateStack();
+    }
+
+    private void onCustomLongPress(float touchY)
+    {
+        if(mState != State.List && mState != State.Single)
+        {
+            return;
+        }
+        float y = touchY + calculateRenderCamera();
+        int index = findItemAt(y);
+        if(index < 0)
+        {
+            return;
+        }
+        if(mState == State.Single)
+        {
+            onLeaveCard(mFocusedItem, getItemView(mFocusedItem));
+        }
+        mEditingCursor = mItemPositions.get(index);
+        mEditingCursorDy = y - mEditingCursor;
+        mEditingTouchY = touchY;
+        reanimateItemPosition();
+        editOn(index);
+        startEdgeScroll();
+    }
+
+
+    private void recalculateItemHeight()
+    {
+        View img = findAnyItemView();
+        if(img != null)
+        {
+            int height = img.getBottom() - img.getTop();
+            if(height <= 0)
+            {
+                // Not laid out yet: the height measured when the card was inflated.
+                height = img.getMeasuredHeight();
+            }
+            applyItemHeight(height);
+        }
+    }
+
+    private void applyItemHeight(float height)
+    {
+        mItemHeight = height;
+        mItemHeights.setReference(height);
+        float h = WalletLayoutEngine.stackHeight(mItemHeight);
+        if(mState != State.Intro)
+        {
+            mStackedHeight = h;
+        }
+        else
+        {
+            mStackedHeightTarget = h;
+        }
+    }
+    private void recalculateItemElevation()
+    {
+        for(int i = 0;i<mItemCount;i++)
+        {
+            View item = mItemViews[i];
+            if(item != null)
+            {
+                item.setElevation(i);
+            }
+        }
+    }
+
+    /**
+     * Orders a plain stack by elevation. A StackFrameLayout orders its children itself, so every
+     * card gets the same elevation and keeps it through a reorder.
+     */
+    private void applyItemElevation(View view, int index)
+    {
+        view.setElevation(mCustomDrawingOrder ? ITEM_ELEVATION : index);
+    }
+
+    /** Draws the pooled views first, underneath, then the cards in logical order. */
+    private int findChildDrawingOrder(int childCount, int drawingPosition)
+    {
+        if(!mVirtualized && childCount == mItemCount)
+        {
+            return mItemChildren[drawingPosition];
+        }
+        if(mDrawingOrderDirty || mDrawingOrder.length < childCount)
+        {
+            rebuildDrawingOrder(childCount);
+        }
+        return mDrawingOrder[drawingPosition];
+    }
+
+    private void rebuildDrawingOrder(int childCount)
+    {
+        mDrawingOrderDirty = false;
+        if(mDrawingOrder.length < childCount)
+        {
+            mDrawingOrder = new int[childCount];
+            mChildOrdered = new boolean[childCount];
+        }
+        Arrays.fill(mChildOrdered, 0, childCount, false);
+        int begin = getViewBegin();
+        int end = getViewEnd();
+        for(int i = begin;i < end;i++)
+        {
+            if(mItemViews[i] != null)
+            {
+                mChildOrdered[mItemChildren[i]] = true;
+            }
+        }
+        int position = 0;
+        for(int child = 0;child < childCount;child++)
+        {
+            if(!mChildOrdered[child])
+            {
+                mDrawingOrder[position++] = child;
+            }
+        }
+        for(int i = begin;i < end;i++)
+        {
+            if(mItemViews[i] != null)
+            {
+                mDrawingOrder[position++] = mItemChildren[i];
+            }
+        }
+    }
+
+    /** Shifts the child indices past a removed child down by one. */
+    private void onChildRemoved(int child)
+    {
+        for(int i = 0;i < mItemCount;i++)
+        {
+            if(mItemViews[i] != null && mItemChildren[i] > child)
+            {
+                mItemChildren[i]--;
+            }
+        }
+        for(int i = 0;i < mRecycledViews.size();i++)
+        {
+            if(mRecycledChildren[i] > child)
+            {
+                mRecycledChildren[i]--;
+            }
+        }
+        mDrawingOrderDirty = true;
+    }
+
+    /** Returns the first card that can hold a view: a virtualized stack only binds a range. */
+    private int getViewBegin()
+    {
+        return mVirtualized ? mViewBegin : 0;
+    }
+
+    /** Returns one past the last card that can hold a view. */
+    private int getViewEnd()
+    {
+        return mVirtualized ? Math.min(mViewEnd, mItemCount) : mItemCount;
+    }
+
+    private void addRecycledView(View view, int child)
+    {
+        int size = mRecycledViews.size();
+        if(mRecycledChildren.length <= size)
+        {
+            mRecycledChildren = Arrays.copyOf(mRecycledChildren, mRecycledChildren.length * 2);
+        }
+        mRecycledChildren[size] = child;
+        mRecycledViews.add(view);
+    }
+
+    private View findAnyItemView()
+    {
+        for(int i = 0;i<mItemCount;i++)
+        {
+            if(mItemViews[i] != null)
+            {
+                return mItemViews[i];
+            }
+        }
+        return null;
+    }
+
+    private void setItemAlpha(float alpha)
+    {
+        mItemAlpha = alpha;
+        for(int i = getViewBegin();i < getViewEnd();i++)
+        {
+            View item = mItemViews[i];
+            if(item != null)
+            {
+                item.setAlpha(alpha);
+            }
+        }
+    }
+
+    private void ensureItemCapacity(int count)
+    {
+        if(mItemViews.length >= count)
+        {
+            return;
+        }
+        int capacity = Math.max(count, mItemViews.length * 2);
+        View[] views = new View[capacity];
+        System.arraycopy(mItemViews, 0, views, 0, mItemCount);
+        mItemViews = views;
+        mItemChildren = Arrays.copyOf(mItemChildren, capacity);
+        mItemVisible = new boolean[capacity];
+    }
+
+    private View materialize(int index)
+    {
+        View view = mItemViews[index];
+        if(view != null)
+        {
+            return view;
+        }
+        int last = mRecycledViews.size() - 1;
+        if(last >= 0)
+        {
+            view = mRecycledViews.remove(last);
+            mItemChildren[index] = mRecycledChildren[last];
+            view.setVisibility(View.VISIBLE);
+        }
+        else
+        {
+            view = mParentActivity.getLayoutInflater().inflate(mItemTemplate, mStack, false);
+            mStack.addView(view);
+            mItemChildren[index] = mStack.getChildCount() - 1;
+        }
+        mItemViews[index] = view;
+        mDrawingOrderDirty = true;
+        mAppliedOffsets.set(index, Float.NaN);
+        view.setAlpha(mItemAlpha);
+        applyItemElevation(view, index);
+        onBind(index, view);
+        return view;
+    }
+
+    private void recycle(int index)
+    {
+        View view = mItemViews[index];
+        mItemViews[index] = null;
+        mDrawingOrderDirty = true;
+        // Pooled views stay attached; INVISIBLE only skips drawing and does not request layout.
+        view.setVisibility(View.INVISIBLE);
+        addRecycledView(view, mItemChildren[index]);
+    }
+
+    /**
+     * Flags the cards that can be seen. A virtualized stack materializes them and recycles the
+     * others; otherwise the hidden cards are only made INVISIBLE, which skips drawing them
+     * without a layout pass.
+     */
+    private void recalculateVisibleItems(float camera)
+    {
+        // Cards only hide the ones below them once the intro fade is over, and not while the
+        // dragged card is lifted above the drawing order.
+        boolean occlude = mItemAlpha >= 1.0f && mState != State.Edit;
+        WalletLayoutEngine.computeVisibility(mItemPositions.array(), mItemHeights, mRangeBegin,
+                mRangeEnd, camera, mItemHeight, mStack.getHeight(), occlude, mItemVisible);
+        if(mState == State.Edit)
+        {
+            // The dragged card stays under the finger whatever it covers.
+            mItemVisible[mEditingItemTarget] = true;
+        }
+        if(!mVirtualized)
+        {
+            for(int i = 0;i<mItemCount;i++)
+            {
+                View item = mItemViews[i];
+                int visibility = mItemVisible[i] ? View.VISIBLE : View.INVISIBLE;
+                if(item != null && item.getVisibility() != visibility)
+                {
+                    item.setVisibility(visibility);
+                }
+            }
+            return;
+        }
+        // Cards the range moved off give their views back.
+        for(int i = getViewBegin();i < getViewEnd();i++)
+        {
+            if(i < mRangeBegin || i >= mRangeEnd)
+            {
+                mItemVisible[i] = false;
+                if(mItemViews[i] != null)
+                {
+                    recycle(i);
+                }
+            }
+        }
+        mViewBegin = mRangeBegin;
+        mViewEnd = mRangeEnd;
+        for(int i = mRangeBegin;i < mRangeEnd;i++)
+        {
+            if(!mItemVisible[i] && mItemViews[i] != null)
+            {
+                recycle(i);
+            }
+        }
+        for(int i = mRangeBegin;i < mRangeEnd;i++)
+        {
+            if(mItemVisible[i] && mItemViews[i] == null)
+            {
+                materialize(i);
+            }
+        }
+    }
+
+    private void moveItemView(int from, int to)
+    {
+        View view = mItemViews[from];
+        int child = mItemChildren[from];
+        if(from < to)
+        {
+            System.arraycopy(mItemViews, from + 1, mItemViews, from, to - from);
+            System.arraycopy(mItemChildren, from + 1, mItemChildren, from, to - from);
+        }
+        else
+        {
+            System.arraycopy(mItemViews, to, mItemViews, to + 1, from - to);
+            System.arraycopy(mItemChildren, to, mItemChildren, to + 1, from - to);
+        }
+        mItemViews[to] = view;
+        mItemChildren[to] = child;
+        mDrawingOrderDirty = true;
+    }
+
+    /**
+     * Runs one touch event through the gesture state machine: taps, long presses, scrolls,
+     * flings and card drags are all told apart here, without copying any event.
+     */
+    public void onTouchEvent(MotionEvent e)
+    {
+        long applied = mAppliedUpdates;
+        int action = e.getActionMasked();
+        if(mVelocityTracker == null)
+        {
+            mVelocityTracker = VelocityTracker.obtain();
+        }
+        else if(action == MotionEvent.ACTION_DOWN)
+        {
+            mVelocityTracker.clear();
+        }
+        mVelocityTracker.addMovement(e);
+        if(action == MotionEvent.ACTION_DOWN)
+        {
+            onTouchDown(e);
+        }
+        else if(action == MotionEvent.ACTION_MOVE)
+        {
+            onTouchMove(e);
+        }
+        else if(action == MotionEvent.ACTION_UP)
+        {
+            onTouchUp(e);
+        }
+        else if(action == MotionEvent.ACTION_CANCEL)
+        {
+            onTouchCancel();
+        }
+        if(mAppliedUpdates != applied)
+        {
+            // Event times are uptime millis, on the same monotonic clock as System.nanoTime().
+            mFrameStats.onTouchApplied(e.getEventTime() * 1000000L);
+        }
+        if(action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL)
+        {
+            mFrameStats.onGestureEnd();
+        }
+    }
+
+    private void reportTouchLatency()
+    {
+        FrameHistogram latency = mFrameStats.getTouchLatency();
+        if(Log.isLoggable(Log.INFO))
+        {
+            Log.i(TAG, latency.appendTo(new StringBuilder("touch latency ")).toString());
+        }
+        if(mTouchLatencyListener != null)
+        {
+            mTouchLatencyListener.onTouchLatency(latency);
+        }
+    }
+
+    private void onTouchDown(MotionEvent e)
+    {
+        mStack.removeCallbacks(mLongPress);
+        mTouch = Touch.Pressed;
+        mDownX = e.getX();
+        mDownY = e.getY();
+        mLastTouchY = mDownY;
+        mTouchPredictor.reset();
+        mTouchPredictor.add(e.getEventTime() * 1000000L, mDownY);
+        mStack.postDelayed(mLongPress, CUSTOM_LONG_PRESS_DURATION);
+        cameraBounce.destroy();
+        fling.destroy();
+        // The finger catches the camera.
+        mCameraVelocity = 0.0f;
+        if(mState == State.SingleToList) {
+            singleToList.destroy();
+        }
+        if(mState == State.ListToSingle) {
+            listToSingle.destroy();
+        }
+    }
+
+    private void onTouchMove(MotionEvent e)
+    {
+        float y = e.getY();
+        addTouchSamples(e);
+        if(mTouch == Touch.Pressed)
+        {
+            float dx = mDownX - e.getX();
+            float dy = mDownY - y;
+            float d = dx * dx + dy * dy;
+            if(d > CUSTOM_LONG_PRESS_DISTANCE_THRESHOLD)
+            {
+                mStack.removeCallbacks(mLongPress);
+            }
+            if(d > mTouchSlopSquare)
+            {
+                // The first step covers the whole distance from the down position.
+                mTouch = Touch.Scrolling;
+                scrollToTouch(predictTouchY());
+            }
+        }
+        else if(mTouch == Touch.Scrolling)
+        {
+            scrollToTouch(predictTouchY());
+        }
+        else if(mTouch == Touch.LongPressed && mState == State.Edit)
+        {
+            mEditingTouchY = y;
+            recalculateEditIndex(mEditingTouchY + mCameraY);
+            startEdgeScroll();
+        }
+    }
+
+    private void onTouchUp(MotionEvent e)
+    {
+        mStack.removeCallbacks(mLongPress);
+        Touch touch = mTouch;
+        mTouch = Touch.Idle;
+        if(touch == Touch.Scrolling)
+        {
+            // Takes back whatever the prediction overshot before the camera is let go.
+            scrollToTouch(e.getY());
+            mVelocityTracker.computeCurrentVelocity(1000, mMaximumFlingVelocity);
+            float velocity = mVelocityTracker.getYVelocity();
+            if(Math.abs(velocity) > mMinimumFlingVelocity)
+            {
+                flingWith(velocity);
+            }
+        }
+        // A fling started above ends in a bounce of its own.
+        if(mState == State.List && !fling.mIsAwake)
+        {
+            cameraBounce.awake();
+        }
+        if(mState == State.Single)
+        {
+            float item_y = mItemPositions.get(mFocusedItem);
+            float delta = item_y - mCameraY;
+            if(delta > SINGLE_OUT_OFFSET)
+            {
+                singleToList.awake();
+            }
+            else
+            {
+                mCameraYTarget = mItemPositions.get(mFocusedItem);
+                cameraBounce.awake();
+            }
+        }
+        if(mState == State.Edit)
+        {
+            editOff();
+            updateStack();
+        }
+        else if(touch == Touch.Pressed
+                && e.getEventTime() - e.getDownTime() < CUSTOM_LONG_PRESS_DURATION)
+        {
+            // A press held past the long press duration is no tap, even if the long press
+            // callback ran late or had nothing to pick up.
+            tapAt(mDownY);
+        }
+    }
+
+    /**
+     * Feeds the predictor every sample of the event: the historical ones batched since the
+     * last event, then the current one. MotionEvent times are uptime millis, on the same
+     * monotonic clock as the frame times.
+     */
+    private void addTouchSamples(MotionEvent e)
+    {
+        int history = e.getHistorySize();
+        for(int h = 0;h < history;h++)
+        {
+            mTouchPredictor.add(e.getHistoricalEventTime(h) * 1000000L, e.getHistoricalY(h));
+        }
+        mTouchPredictor.add(e.getEventTime() * 1000000L, e.getY());
+    }
+
+    /** Returns the finger y predicted for the next frame. */
+    private float predictTouchY()
+    {
+        long now = mFrameClock.now();
+        long period = mFrameStats.getFrameBudgetNanos();
+        long last = mFrameClock.getFrameTimeNanos();
+        long next = now + period;
+        if(last > 0 && last <= now)
+        {
+            next = last + ((now - last) / period + 1) * period;
+        }
+        return mTouchPredictor.predict(next);
+    }
+
+    /** Scrolls the camera by how far the finger moved since the last scroll step. */
+    private void scrollToTouch(float y)
+    {
+        scrollBy(mLastTouchY - y);
+        mLastTouchY = y;
+    }
+
+    private void onTouchCancel()
+    {
+        mStack.removeCallbacks(mLongPress);
+        mTouch = Touch.Idle;
+        if(mState == State.Edit)
+        {
+            editOff();
+            updateStack();
+        }
+        else if(mState == State.List)
+        {
+            cameraBounce.awake();
+        }
+    }
+
+    private float calculateEdgeScrollVelocity()
+    {
+        float viewport = mStack.getHeight();
+        return WalletLayoutEngine.edgeScrollVelocity(mEditingTouchY, viewport,
+                viewport * EDGE_SCROLL_ZONE_RATIO, EDGE_SCROLL_MAX_VELOCITY);
+    }
+
+    /** Starts scrolling on the next frame if the finger is held near an edge. */
+    private void startEdgeScroll()
+    {
+        if(calculateEdgeScrollVelocity() != 0.0f)
+        {
+            if(!mFrameClock.contains(mEdgeScroll))
+            {
+                mEdgeScrollFrameTime = mFrameClock.now();
+            }
+            mFrameClock.add(mEdgeScroll);
+        }
+    }
+
+    /**
+     * Moves the camera under the dragged card for {@code dt} seconds, within the List bounds,
+     * and moves the card along with it. The card reorders through the same incremental steps
+     * as a drag, and only the cards left on screen are pushed to their views.
+     *
+     * @return false once there is nothing left to scroll.
+     */
+    private boolean scrollEdge(float dt)
+    {
+        if(mState != State.Edit)
+        {
+            return false;
+        }
+        float velocity = calculateEdgeScrollVelocity();
+        float camera = CMath.clamp(0.0f, calculateCameraMax(), mCameraY + velocity * dt);
+        if(velocity == 0.0f || camera == mCameraY)
+        {
+            return false;
+        }
+        mCameraY = camera;
+        mCameraYTarget = camera;
+        recalculateEditIndex(mEditingTouchY + mCameraY);
+        return true;
+    }
+
+    private void recalculateEditIndex(float cursor)
+    {
+        mEditingCursor = cursor - mEditingCursorDy;
+        mItemPositions.set(mEditingItemTarget, mEditingCursor);
+        float sensor_cursor = mEditingCursor + mStackedHeight/2;
+        int index = mItemHeights.indexAt(sensor_cursor / calculateStackScale());
+        if(mEditingItemTarget != index)
+        {
+            int previous = mEditingItem;
+            mEditingItem = mEditingItemTarget;
+            View item = mItemViews[mEditingItemTarget];
+            if(mCustomDrawingOrder)
+            {
+                // Only the drawing order changes: no view is detached and no shadow recomputed.
+                mStack.invalidate();
+            }
+            else
+            {
+                if(!mVirtualized)
+                {
+                    mStack.removeViewAt(mEditingItemTarget);
+                    mStack.addView(item,index);
+                }
+                item.setElevation(index);
+            }
+            moveItemView(mEditingItemTarget, index);
+            // The dragged view goes along, even past the cards bound so far.
+            mViewBegin = Math.min(mViewBegin, index);
+            mViewEnd = Math.max(mViewEnd, index + 1);
+            mItemPositions.move(mEditingItemTarget, index);
+            mItemVelocities.move(mEditingItemTarget, index);
+            mItemHeights.move(mEditingItemTarget, index);
+            // Applied offsets belong to the views, so they move along with them.
+            mAppliedOffsets.move(mEditingItemTarget, index);
+            onMoveCard(mEditingItemTarget, index);
+            mEditingItemTarget = index;
+            positionAdjust.awake();
+            // Only the card displaced by the previous step can still be off its target; cards
+            // between the old and new index were shifted by the move and keep animating.
+            if(previous < Math.min(mEditingItemTarget, mEditingItem) ||
+                    previous > Math.max(mEditingItemTarget, mEditingItem))
+            {
+                mItemPositions.set(previous, mItemPositionTargets.get(previous));
+            }
+        }
+        updateStack();
+    }
+    private void recalculateItemPosition()
+    {
+        recalculateItemRange(calculateRenderCamera());
+        WalletLayoutEngine.solve(State.List, mCameraY, mStackedHeight, mItemHeights,
+                mStack.getHeight(), mRangeBegin, mRangeEnd, mFocusedItem, mItemPositions.array());
+        mItemVelocities.fill(mRangeBegin, mRangeEnd, 0.0f);
+        markItemPositionsLive(mRangeBegin, mRangeEnd);
+        updateStack();
+    }
+
+    /**
+     * Narrows {@link #mRangeBegin} and {@link #mRangeEnd} to the cards from the top of the pile
+     * at the camera down to the bottom of the viewport. Only a virtualized stack in a List
+     * layout does: List positions grow with the index, so both ends are found in O(log n) and
+     * a frame costs the same however many cards there are. The cards buried in the pile are
+     * left out, the card on top of it covers them.
+     */
+    private void recalculateItemRange(float camera)
+    {
+        mRangeBegin = 0;
+        mRangeEnd = mItemCount;
+        if(!mVirtualized || mItemCount == 0 ||
+                (mState != State.List && mState != State.Intro && mState != State.Edit))
+        {
+            return;
+        }
+        int begin = WalletLayoutEngine.listPileTop(mItemHeights, calculateCameraClamped(),
+                mStackedHeight);
+        int end = WalletLayoutEngine.listVisibleEnd(mItemHeights, camera, mStackedHeight,
+                mStack.getHeight());
+        if(mState == State.Edit)
+        {
+            // The dragged card is drawn wherever the finger is.
+            begin = Math.min(begin - EDIT_RANGE_MARGIN, mEditingItemTarget);
+            end = Math.max(end + EDIT_RANGE_MARGIN, mEditingItemTarget + 1);
+        }
+        mRangeBegin = Math.max(0, begin);
+        mRangeEnd = Math.min(mItemCount, end);
+    }
+
+    /**
+     * Records that only the cards in [begin, end) moved: the others are put back on the List
+     * layout by {@link #solveSkippedItemPositions()} before anything reads them.
+     */
+    private void markItemPositionsLive(int begin, int end)
+    {
+        mItemPositionsPartial = begin > 0 || end < mItemCount;
+        mLiveBegin = begin;
+        mLiveEnd = end;
+    }
+
+    /** Puts the cards a narrowed frame skipped on their List position, at rest. */
+    private void solveSkippedItemPositions()
+    {
+        if(!mItemPositionsPartial)
+        {
+            return;
+        }
+        mItemPositionsPartial = false;
+        int begin = Math.min(mLiveBegin, mItemCount);
+        int end = Math.min(mLiveEnd, mItemCount);
+        WalletLayoutEngine.solve(State.List, mCameraY, mStackedHeight, mItemHeights,
+                mStack.getHeight(), 0, begin, mFocusedItem, mItemPositions.array());
+        WalletLayoutEngine.solve(State.List, mCameraY, mStackedHeight, mItemHeights,
+                mStack.getHeight(), end, mItemCount, mFocusedItem, mItemPositions.array());
+        mItemVelocities.fill(0, begin, 0.0f);
+        mItemVelocities.fill(end, mItemCount, 0.0f);
+        mHitTesterDirty = true;
+    }
+
+    /**
+     * Springs the camera toward {@link #mCameraYTarget}, carrying its velocity over.
+     *
+     * @return whether the camera came to rest on its target.
+     */
+    private boolean springCamera(Spring spring, float dt)
+    {
+        spring.setTimeStep(dt);
+        float x = mCameraY;
+        float v = mCameraVelocity;
+        mCameraY = spring.position(x, v, mCameraYTarget);
+        mCameraVelocity = spring.velocity(x, v, mCameraYTarget);
+        if(Spring.isAtRest(mCameraY, mCameraVelocity, mCameraYTarget))
+        {
+            mCameraY = mCameraYTarget;
+            mCameraVelocity = 0.0f;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Springs every card toward its target position, carrying its velocity over. A virtualized
+     * List only springs the cards on screen; the others land on their List position.
+     *
+     * @return whether every card came to rest on its target.
+     */
+    private boolean springItemPositions(float dt)
+    {
+        recalculateItemRange(calculateRenderCamera());
+        if(mRangeBegin > 0 || mRangeEnd < mItemCount)
+        {
+            markItemPositionsLive(mRangeBegin, mRangeEnd);
+        }
+        mTransitionSpring.setTimeStep(dt);
+        return mTransitionSpring.step(mItemPositions.array(), mItemVelocities.array(),
+                mItemPositionTargets.array(), mRangeBegin, mRangeEnd);
+    }
+
+    /** Puts every card on its target position, with no velocity left. */
+    private void restItemPositions()
+    {
+        mItemPositions.copyFrom(mItemPositionTargets);
+        mItemVelocities.fill(0.0f);
+        mItemPositionsPartial = false;
+    }
+
+    private void reanimateItemPosition()
+    {
+        WalletLayoutEngine.solve(State.List, mCameraY, mStackedHeight, mItemHeights,
+                mStack.getHeight(), mItemCount, mFocusedItem, mItemPositionTargets.array());
+        //positionAdjust.awake();
+    }
+
+    private float calculateStackHeight()
+    {
+        return WalletLayoutEngine.stackHeight(mItemHeight);
+    }
+
+    private float calculateCameraClamped()
+    {
+        return WalletLayoutEngine.cameraClamped(mCameraY, mItemHeights, mStack.getHeight());
+    }
+
+    private void calculateStackStretch()
+    {
+        mStackedHeight = WalletLayoutEngine.stackStretch(mCameraY, mItemHeights,
+                mStack.getHeight());
+    }
+
+
+    /** Moves the camera by {@code distanceY}, against the finger. */
+    private void scrollBy(float distanceY)
+    {
+        if(mState == State.Edit)
+        {
+            // The finger drags the card; only the edge scroll moves the camera.
+            return;
+        }
         mCameraY += distanceY;
+        mCameraVelocity = 0.0f;
         calculateStackStretch();
         mCameraYTarget = mCameraY;
         if(mState == State.List) {
@@ -650,13 +1889,37 @@ public class WalletLayoutSolver extends GestureDetector.SimpleOnGestureListener
         {
             updateStack();
         }
-        return false;
+    }
+
+    /** Returns the camera the cards are drawn with: clamped while the List stretches. */
+    private float calculateRenderCamera()
+    {
+        return mState == State.List?calculateCameraClamped():mCameraY;
+    }
+
+    /**
+     * Returns the card drawn at {@code y}, in stack space, or -1. Rebuilds the hit-test index
+     * if the cards moved since the last touch.
+     */
+    private int findItemAt(float y)
+    {
+        solveSkippedItemPositions();
+        if(mHitTesterDirty)
+        {
+            mHitTester.build(mItemPositions.array(), mItemHeights, mItemCount, mItemHeight);
+            mHitTesterDirty = false;
+        }
+        return mHitTester.find(y);
     }
 
     private float calculateCameraMax()
     {
-        float h = mItemHeight * STACK_RATIO;
-        return Math.max(0, h * mStack.getChildCount() - mStack.getHeight() - h + mItemHeight);
+        return WalletLayoutEngine.cameraMax(mItemHeights, mStack.getHeight());
+    }
+
+    private float calculateStackScale()
+    {
+        return WalletLayoutEngine.stackScale(mStackedHeight, mItemHeight);
     }
 
     private void updateStack()
@@ -665,61 +1928,84 @@ public class WalletLayoutSolver extends GestureDetector.SimpleOnGestureListener
         {
             return;
         }
-        float camera = mState == State.List?calculateCameraClamped():mCameraY;
-        for(int i = 0; i< mStack.getChildCount(); i++)
+        long start = System.nanoTime();
+        float camera = calculateRenderCamera();
+        mHitTesterDirty = true;
+        recalculateItemRange(camera);
+        recalculateVisibleItems(camera);
+        // Top of each card's row in a LinearLayout stack.
+        float rowTop = mRangeBegin > 0 ? mItemHeights.prefix(mRangeBegin) : 0;
+        for(int i = mRangeBegin; i< mRangeEnd; i++)
         {
-            View item = mStack.getChildAt(i);
+            View item = mItemViews[i];
+            float origin = rowTop;
+            rowTop += mItemHeights.get(i);
+            if(item == null)
+            {
+                continue;
+            }
+            if(!mItemVisible[i])
+            {
+                // Hidden cards keep their last offset until they come back into view.
+                mSkippedUpdates++;
+                continue;
+            }
             float target = mItemPositions.get(i);
-            if(USE_ABSOLUTE_LAYOUT)
+            float offset;
+            if(mRenderMode == RenderMode.Translation)
+            {
+                // Cards keep their layout slot (the top of a FrameLayout, or their row in a
+                // LinearLayout) and are only offset at draw time.
+                offset = target - (mStack instanceof LinearLayout ? origin : 0) - camera;
+            }
+            else if(mRenderMode == RenderMode.AbsoluteMargins)
+            {
+                offset = (int) (target - camera);
+            }
+            else
+            {
+                offset = (int) (target - origin - camera);
+            }
+            if(Math.abs(offset - mAppliedOffsets.get(i)) < mUpdateThreshold)
+            {
+                mSkippedUpdates++;
+                continue;
+            }
+            mAppliedOffsets.set(i, offset);
+            mAppliedUpdates++;
+            if(mRenderMode == RenderMode.Translation)
+            {
+                item.setTranslationY(offset);
+            }
+            else if(mRenderMode == RenderMode.AbsoluteMargins)
             {
-                float margin = target - camera;
                 ViewGroup.MarginLayoutParams marginParams = new ViewGroup.MarginLayoutParams(item.getLayoutParams());
-                marginParams.setMargins(0, (int) margin, 0, (int) -margin);
+                marginParams.setMargins(0, (int) offset, 0, (int) -offset);
                 FrameLayout.LayoutParams params = new FrameLayout.LayoutParams(marginParams);
                 item.setLayoutParams(params);
             }
             else
             {
-                float origin = i * mItemHeight;
-                float margin = target - origin - camera;
-                ViewGroup.MarginLayoutParams marginParams = new ViewGroup.MarginLayoutParams(mStack.getChildAt(i).getLayoutParams());
-                marginParams.setMargins(0, (int) margin, 0, (int) -margin);
+                ViewGroup.MarginLayoutParams marginParams = new ViewGroup.MarginLayoutParams(item.getLayoutParams());
+                marginParams.setMargins(0, (int) offset, 0, (int) -offset);
                 LinearLayout.LayoutParams params = new LinearLayout.LayoutParams(marginParams);
-                mStack.getChildAt(i).setLayoutParams(params);
+                item.setLayoutParams(params);
             }
         }
+        mFrameStats.recordUpdateStack(System.nanoTime() - start);
     }
 
-    @Override
-    public boolean onFling(MotionEvent e1, MotionEvent e2, float velocityX,
-                           float velocityY) {
-        // Fling event occurred.  Notification of this one happens after an "up" event.
-        return false;
-    }
-
-    @Override
-    public void onShowPress(MotionEvent e) {
-        // User performed a down event, and hasn't moved yet.
-    }
-
-    @Override
-    public boolean onDown(MotionEvent e) {
-        // "Down" event - User touched the screen.
-        return false;
-    }
-
-    @Override
-    public boolean onDoubleTap(MotionEvent e) {
-        // User tapped the screen twice.
-        return false;
-    }
-
-    @Override
-    public boolean onDoubleTapEvent(MotionEvent e) {
-        // Since double-tap is actually several events which are considered one aggregate
-        // gesture, there's a separate callback for an individual event within the doubletap
-        // occurring.  This occurs for down, up, and move.
-        return false;
+    /** Flings the camera with the finger's {@code velocityY}, in pixels per sec. */
+    private void flingWith(float velocityY)
+    {
+        if(mState != State.List)
+        {
+            return;
+        }
+        // The camera moves against the finger.
+        mCameraVelocity = -velocityY;
+        cameraBounce.destroy();
+        fling.awake();
     }
 
     public void onLeaveCard(int index, View view)
@@ -736,39 +2022,55 @@ public class WalletLayoutSolver extends GestureDetector.SimpleOnGestureListener
         mEditingItem = index;
         mEditingItemTarget = index;
         mState = State.Edit;
-        View item = mStack.getChildAt(mEditingItem);
-        item.setElevation(9999);
+        View item = mItemViews[mEditingItem];
+        if((mCustomDrawingOrder || mRenderMode == RenderMode.Translation) && Build.VERSION.SDK_INT >= 21)
+        {
+            item.setTranslationZ(EDIT_ELEVATION);
+        }
+        else
+        {
+            item.setElevation(EDIT_ELEVATION);
+        }
         item.setAlpha(0.8f);
     }
 
     private void editOff()
     {
         mEditingItem = mEditingItemTarget;
-        View item = mStack.getChildAt(mEditingItemTarget);
+        View item = mItemViews[mEditingItemTarget];
         item.setAlpha(1.0f);
+        if((mCustomDrawingOrder || mRenderMode == RenderMode.Translation) && Build.VERSION.SDK_INT >= 21)
+        {
+            item.setTranslationZ(0);
+        }
         mState = State.List;
-        recalculateItemElevation();
+        mFrameClock.remove(mEdgeScroll);
+        if(!mCustomDrawingOrder)
+        {
+            recalculateItemElevation();
+        }
+        else if(Build.VERSION.SDK_INT < 21)
+        {
+            applyItemElevation(item, mEditingItem);
+        }
         reanimateItemPosition();
         positionAdjust.awake();
         //editToList.awake();
     }
 
-    @Override
-    public boolean onSingleTapConfirmed(MotionEvent e) {
-        // A confirmed single-tap event has occurred.  Only called when the detector has
-        // determined that the first tap stands alone, and is not part of a double tap.
-        // Since double-tap is actually several events which are considered one aggregate
-        // gesture, there's a separate callback for an individual event within the doubletap
-        // occurring.  This occurs for down, up, and move.
+    /**
+     * Opens the card tapped at {@code touchY} from the List, or confirms the open one. Nothing
+     * here needs a double tap, so a tap counts as soon as the finger lifts.
+     */
+    private void tapAt(float touchY)
+    {
         if(mState == State.List)
         {
-            float y = e.getY() + mCameraY;
-            if(y < 0 || y > mStackedHeight *(mStack.getChildCount() - 1) + mItemHeight)
+            int i = findItemAt(touchY + calculateRenderCamera());
+            if(i < 0)
             {
-                return false;
+                return;
             }
-            int i = (int) (y / mStackedHeight);
-            i = CMath.clamp(0, mStack.getChildCount() - 1, i);
             mFocusedItem = i;
             listToSingle.awake();
         }
@@ -776,6 +2078,5 @@ public class WalletLayoutSolver extends GestureDetector.SimpleOnGestureListener
         {
             onEnterDetailConfirmed(mFocusedItem);
         }
-        return false;
     }
 }
\ No newline at end of file
@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.common.logger;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Command line tool printing a file written by {@link BinaryLogNode} as text, one record per
+ * line in a logcat-like format, oldest first. Runs on a plain JVM, e.g. through the decodeLog
+ * task of the Benchmark module after pulling the file off the device:
+ *
+ * <pre>
+ * adb shell run-as com.example.android.basicgesturedetect cat files/log.bin &gt; log.bin
+ * ./gradlew :Benchmark:decodeLog -PlogFile=$PWD/log.bin
+ * </pre>
+ */
+public class BinaryLogDecoder {
+
+    private static final String PRIORITIES = "??VDIWEA";
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: BinaryLogDecoder <log file>");
+            System.exit(2);
+        }
+        RandomAccessFile file = new RandomAccessFile(args[0], "r");
+        try {
+            MappedByteBuffer buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0,
+                    file.length());
+            if (!BinaryLogFormat.isValid(buffer)) {
+                System.err.println(args[0] + " is not a binary log");
+                System.exit(1);
+            }
+            decode(buffer, System.out);
+        } finally {
+            file.close();
+        }
+    }
+
+    /**
+     * Prints every record of {@code buffer} to {@code out}, followed by a summary line.
+     */
+    public static void decode(ByteBuffer buffer, final PrintStream out) {
+        final SimpleDateFormat dateFormat =
+                new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS", Locale.US);
+        final Date date = new Date();
+        int read = BinaryLogFormat.read(buffer, new BinaryLogFormat.RecordVisitor() {
+            @Override
+            public void onRecord(long timeMillis, int priority, String tag, String message) {
+                date.setTime(timeMillis);
+                out.append(dateFormat.format(date)).append(' ')
+                        .append(priority >= 0 && priority < PRIORITIES.length()
+                                ? PRIORITIES.charAt(priority) : '-')
+                        .append('/').append(tag != null ? tag : "")
+                        .append(": ").append(message).append('\n');
+            }
+        });
+        out.println("-- " + read + " of " + BinaryLogFormat.getRecordCount(buffer)
+                + " records, " + BinaryLogFormat.getDropped(buffer) + " dropped before writing");
+    }
+}
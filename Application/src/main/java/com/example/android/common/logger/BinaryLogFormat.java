@@ -0,0 +1,318 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.common.logger;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Layout of the ring file written by {@link BinaryLogNode} and read by
+ * {@link BinaryLogDecoder}. Plain Java, so the decoder runs on any JVM.
+ *
+ * <p>The file starts with a fixed header, followed by a table of tags and the ring of records.
+ * Tags are stored once in the table and referenced by index from every record. A record is
+ * its total length, the wall clock time in milliseconds, the priority, the tag index and the
+ * UTF-8 message. A record never wraps around the end of the ring: when it does not fit, a zero
+ * length marks the rest of the ring as unused and the record goes to the start instead,
+ * evicting the oldest records. The header keeps where the oldest record starts, where the
+ * next one goes and how many there are, so the file can be read after the process died: the
+ * header drops evicted records before they are overwritten, and only counts a new record once
+ * it is complete.</p>
+ */
+public final class BinaryLogFormat {
+
+    /** "LOGB" */
+    public static final int MAGIC = 0x4c4f4742;
+    public static final int VERSION = 1;
+
+    /** Tag index of records logged without a tag, or after the tag table filled up. */
+    public static final int NO_TAG = 0xffff;
+    public static final int MAX_TAGS = 256;
+    /** Longer tags are cut, Android tags used to be limited to 23 characters anyway. */
+    public static final int MAX_TAG_BYTES = 30;
+    public static final int MIN_DATA_SIZE = 1024;
+
+    static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final int MAX_MESSAGE_BYTES = 4096;
+
+    // Header fields.
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 4;
+    private static final int DATA_SIZE_OFFSET = 8;
+    private static final int HEAD_OFFSET = 12;
+    private static final int TAIL_OFFSET = 16;
+    private static final int COUNT_OFFSET = 20;
+    private static final int TAG_COUNT_OFFSET = 24;
+    private static final int DROPPED_OFFSET = 32;
+    private static final int HEADER_SIZE = 64;
+
+    private static final int TAG_SLOT_SIZE = 2 + MAX_TAG_BYTES;
+    private static final int DATA_OFFSET = HEADER_SIZE + MAX_TAGS * TAG_SLOT_SIZE;
+
+    // Record fields, relative to the start of the record.
+    private static final int RECORD_TIME = 4;
+    private static final int RECORD_PRIORITY = 12;
+    private static final int RECORD_TAG = 13;
+    private static final int RECORD_HEADER_SIZE = 15;
+    private static final int WRAP = 0;
+
+    /**
+     * Receives decoded records, oldest first.
+     */
+    public interface RecordVisitor {
+        public void onRecord(long timeMillis, int priority, String tag, String message);
+    }
+
+    private BinaryLogFormat() {
+    }
+
+    /**
+     * Returns the size of a file holding {@code dataSize} bytes of records.
+     */
+    public static int fileSize(int dataSize) {
+        return DATA_OFFSET + dataSize;
+    }
+
+    /**
+     * Returns how many bytes of a message fit in one record of a ring of {@code dataSize}.
+     */
+    public static int maxMessageBytes(int dataSize) {
+        return Math.min(MAX_MESSAGE_BYTES, dataSize / 4 - RECORD_HEADER_SIZE);
+    }
+
+    /**
+     * Writes an empty header and tag table for a ring of {@code dataSize} bytes.
+     */
+    public static void init(ByteBuffer buffer, int dataSize) {
+        if (dataSize < MIN_DATA_SIZE) {
+            throw new IllegalArgumentException("Data size " + dataSize + " is below "
+                    + MIN_DATA_SIZE);
+        }
+        for (int i = 0; i < DATA_OFFSET; i++) {
+            buffer.put(i, (byte) 0);
+        }
+        buffer.putInt(VERSION_OFFSET, VERSION);
+        buffer.putInt(DATA_SIZE_OFFSET, dataSize);
+        // Magic last, so a header cut short by a crash is never taken as valid.
+        buffer.putInt(MAGIC_OFFSET, MAGIC);
+    }
+
+    /**
+     * Returns true if {@code buffer} holds a ring written by this version of the format.
+     */
+    public static boolean isValid(ByteBuffer buffer) {
+        if (buffer.capacity() < DATA_OFFSET || buffer.getInt(MAGIC_OFFSET) != MAGIC
+                || buffer.getInt(VERSION_OFFSET) != VERSION) {
+            return false;
+        }
+        int dataSize = buffer.getInt(DATA_SIZE_OFFSET);
+        return dataSize >= MIN_DATA_SIZE && buffer.capacity() >= fileSize(dataSize);
+    }
+
+    public static int getDataSize(ByteBuffer buffer) {
+        return buffer.getInt(DATA_SIZE_OFFSET);
+    }
+
+    public static int getRecordCount(ByteBuffer buffer) {
+        return buffer.getInt(COUNT_OFFSET);
+    }
+
+    /**
+     * Returns how many records were lost before they reached the file.
+     */
+    public static long getDropped(ByteBuffer buffer) {
+        return buffer.getLong(DROPPED_OFFSET);
+    }
+
+    public static void setDropped(ByteBuffer buffer, long dropped) {
+        buffer.putLong(DROPPED_OFFSET, dropped);
+    }
+
+    /**
+     * Returns the tags stored so far, indexed by tag index.
+     */
+    public static String[] readTags(ByteBuffer buffer) {
+        String[] tags = new String[Math.min(MAX_TAGS, buffer.getInt(TAG_COUNT_OFFSET))];
+        byte[] bytes = new byte[MAX_TAG_BYTES];
+        for (int i = 0; i < tags.length; i++) {
+            int slot = HEADER_SIZE + i * TAG_SLOT_SIZE;
+            int length = Math.min(MAX_TAG_BYTES, buffer.getShort(slot));
+            for (int j = 0; j < length; j++) {
+                bytes[j] = buffer.get(slot + 2 + j);
+            }
+            tags[i] = new String(bytes, 0, length, UTF_8);
+        }
+        return tags;
+    }
+
+    /**
+     * Stores {@code tag} in the tag table.
+     *
+     * @return The index to log it with, or {@link #NO_TAG} if the table is full.
+     */
+    public static int addTag(ByteBuffer buffer, String tag) {
+        int index = buffer.getInt(TAG_COUNT_OFFSET);
+        if (index >= MAX_TAGS) {
+            return NO_TAG;
+        }
+        byte[] bytes = tag.getBytes(UTF_8);
+        int length = utf8Prefix(bytes, bytes.length, MAX_TAG_BYTES);
+        int slot = HEADER_SIZE + index * TAG_SLOT_SIZE;
+        buffer.putShort(slot, (short) length);
+        for (int i = 0; i < length; i++) {
+            buffer.put(slot + 2 + i, bytes[i]);
+        }
+        buffer.putInt(TAG_COUNT_OFFSET, index + 1);
+        return index;
+    }
+
+    /**
+     * Returns how many of the first {@code length} bytes of UTF-8 {@code bytes} to keep so that
+     * at most {@code max} bytes remain and no character is cut in half.
+     */
+    static int utf8Prefix(byte[] bytes, int length, int max) {
+        if (length <= max) {
+            return length;
+        }
+        int end = max;
+        while (end > 0 && (bytes[end] & 0xc0) == 0x80) {
+            end--;
+        }
+        return end;
+    }
+
+    /**
+     * Appends a record, evicting the oldest ones to make room. The message is cut to
+     * {@link #maxMessageBytes(int)}. Single writer only.
+     */
+    public static void append(ByteBuffer buffer, long timeMillis, int priority, int tag,
+            byte[] message, int messageLength) {
+        int dataSize = buffer.getInt(DATA_SIZE_OFFSET);
+        messageLength = utf8Prefix(message, messageLength, maxMessageBytes(dataSize));
+        int start = reserve(buffer, RECORD_HEADER_SIZE + messageLength);
+        commit(buffer, start, timeMillis, priority, tag, message, messageLength);
+    }
+
+    /**
+     * First half of {@link #append}: evicts the oldest records for as long as they start where
+     * a record {@code length} bytes long is going, and writes the header without them before
+     * any of their bytes are overwritten.
+     *
+     * @return Where the record goes in the ring.
+     */
+    static int reserve(ByteBuffer buffer, int length) {
+        int dataSize = buffer.getInt(DATA_SIZE_OFFSET);
+        int head = buffer.getInt(HEAD_OFFSET);
+        int tail = buffer.getInt(TAIL_OFFSET);
+        int count = buffer.getInt(COUNT_OFFSET);
+        boolean wraps = head + length > dataSize;
+        int start = wraps ? 0 : head;
+
+        int oldTail = tail;
+        int oldCount = count;
+        while (count > 0 && (wraps ? tail >= head || tail < length
+                : tail >= head && tail < head + length)) {
+            int recordLength = lengthAt(buffer, dataSize, tail);
+            if (recordLength == WRAP) {
+                tail = 0;
+            } else {
+                tail += recordLength;
+                count--;
+            }
+        }
+        if (count == 0) {
+            tail = start;
+        }
+        if (count != oldCount || tail != oldTail) {
+            // Count first: until the tail follows, fewer records are read from the old one.
+            buffer.putInt(COUNT_OFFSET, count);
+            buffer.putInt(TAIL_OFFSET, tail);
+        }
+        if (wraps && head + 4 <= dataSize) {
+            buffer.putInt(DATA_OFFSET + head, WRAP);
+        }
+        return start;
+    }
+
+    /**
+     * Second half of {@link #append}: writes the record at {@code start}, then publishes it in
+     * the header. A record cut short by a crash is simply not there.
+     */
+    static void commit(ByteBuffer buffer, int start, long timeMillis, int priority, int tag,
+            byte[] message, int messageLength) {
+        int length = RECORD_HEADER_SIZE + messageLength;
+        int record = DATA_OFFSET + start;
+        buffer.putInt(record, length);
+        buffer.putLong(record + RECORD_TIME, timeMillis);
+        buffer.put(record + RECORD_PRIORITY, (byte) priority);
+        buffer.putShort(record + RECORD_TAG, (short) tag);
+        for (int i = 0; i < messageLength; i++) {
+            buffer.put(record + RECORD_HEADER_SIZE + i, message[i]);
+        }
+
+        buffer.putInt(HEAD_OFFSET, start + length);
+        buffer.putInt(COUNT_OFFSET, buffer.getInt(COUNT_OFFSET) + 1);
+    }
+
+    private static int lengthAt(ByteBuffer buffer, int dataSize, int position) {
+        return position + 4 <= dataSize ? buffer.getInt(DATA_OFFSET + position) : WRAP;
+    }
+
+    /**
+     * Hands every record in the ring to {@code visitor}, oldest first.
+     *
+     * @return The number of records read, less than {@link #getRecordCount} if the ring is
+     * damaged.
+     */
+    public static int read(ByteBuffer buffer, RecordVisitor visitor) {
+        String[] tags = readTags(buffer);
+        int dataSize = buffer.getInt(DATA_SIZE_OFFSET);
+        int count = buffer.getInt(COUNT_OFFSET);
+        int position = buffer.getInt(TAIL_OFFSET);
+        byte[] message = new byte[maxMessageBytes(dataSize)];
+        int read = 0;
+        boolean wrapped = false;
+        while (read < count) {
+            int length = lengthAt(buffer, dataSize, position);
+            if (length == WRAP) {
+                if (wrapped) {
+                    break;
+                }
+                wrapped = true;
+                position = 0;
+                continue;
+            }
+            int messageLength = length - RECORD_HEADER_SIZE;
+            if (messageLength < 0 || messageLength > message.length
+                    || position + length > dataSize) {
+                break;
+            }
+            int record = DATA_OFFSET + position;
+            for (int i = 0; i < messageLength; i++) {
+                message[i] = buffer.get(record + RECORD_HEADER_SIZE + i);
+            }
+            int tag = buffer.getShort(record + RECORD_TAG) & 0xffff;
+            visitor.onRecord(buffer.getLong(record + RECORD_TIME),
+                    buffer.get(record + RECORD_PRIORITY),
+                    tag < tags.length ? tags[tag] : null,
+                    new String(message, 0, messageLength, UTF_8));
+            position += length;
+            read++;
+        }
+        return read;
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.common.logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.io.StringWriter;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Logs to a memory-mapped ring file in the compact {@link BinaryLogFormat}, so that long runs
+ * can be analyzed afterwards with {@link BinaryLogDecoder}.
+ *
+ * <p>{@link #println} only timestamps the record and offers it to a {@link LogRingBuffer};
+ * it never blocks, and never touches the file. A background thread encodes the records and
+ * copies them into the mapping. The kernel writes the pages back to the file, even when the
+ * process gets killed; {@link #close()} forces them out. An existing file of the same size is
+ * appended to, so the ring spans launches.</p>
+ */
+public class BinaryLogNode implements LogNode {
+
+    private static final int QUEUE_RECORDS = 1024;
+    // How long the writer sleeps when there is nothing to write, unless woken up.
+    private static final long IDLE_NANOS = 200000000L;
+    private static final long CLOSE_TIMEOUT_MILLIS = 1000;
+
+    private static final class Record {
+        final long mTimeMillis;
+        final int mPriority;
+        final String mTag;
+        final String mMessage;
+        final Throwable mThrowable;
+
+        Record(long timeMillis, int priority, String tag, String message, Throwable tr) {
+            mTimeMillis = timeMillis;
+            mPriority = priority;
+            mTag = tag;
+            mMessage = message;
+            mThrowable = tr;
+        }
+    }
+
+    private final LogRingBuffer<Record> mQueue = new LogRingBuffer<>(QUEUE_RECORDS);
+    private final RandomAccessFile mFile;
+    private final MappedByteBuffer mBuffer;
+    private final Thread mWriter;
+    private volatile boolean mRunning = true;
+    private volatile boolean mWriterIdle;
+
+    // Writer thread only.
+    private final Map<String, Integer> mTagIndices = new HashMap<>();
+    private final StringBuilder mText = new StringBuilder();
+    private final long mDroppedBefore;
+
+    private final LogRingBuffer.LineSink<Record> mRecordSink =
+            new LogRingBuffer.LineSink<Record>() {
+        @Override
+        public void onLine(Record record) {
+            write(record);
+        }
+    };
+
+    // For piping:  The next node to receive Log data after this one has done its work.
+    private LogNode mNext;
+
+    /**
+     * Maps {@code file}, creating it if needed, and starts the writer thread.
+     *
+     * @param dataSize Bytes of records to keep, at least {@link BinaryLogFormat#MIN_DATA_SIZE}.
+     */
+    public BinaryLogNode(File file, int dataSize) throws IOException {
+        int fileSize = BinaryLogFormat.fileSize(dataSize);
+        mFile = new RandomAccessFile(file, "rw");
+        try {
+            boolean resume = mFile.length() == fileSize;
+            mBuffer = mFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+            if (resume && BinaryLogFormat.isValid(mBuffer)
+                    && BinaryLogFormat.getDataSize(mBuffer) == dataSize) {
+                String[] tags = BinaryLogFormat.readTags(mBuffer);
+                for (int i = 0; i < tags.length; i++) {
+                    mTagIndices.put(tags[i], i);
+                }
+            } else {
+                BinaryLogFormat.init(mBuffer, dataSize);
+            }
+        } catch (IOException | RuntimeException e) {
+            mFile.close();
+            throw e;
+        }
+        mDroppedBefore = BinaryLogFormat.getDropped(mBuffer);
+
+        mWriter = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                writeUntilClosed();
+            }
+        }, "BinaryLogNode");
+        mWriter.setDaemon(true);
+        mWriter.start();
+    }
+
+    /**
+     * Returns the next LogNode in the chain.
+     */
+    public LogNode getNext() {
+        return mNext;
+    }
+
+    /**
+     * Sets the LogNode data will be sent to.
+     */
+    public void setNext(LogNode node) {
+        mNext = node;
+    }
+
+    /**
+     * Queues the record for the writer thread and passes it on. Safe from any thread.
+     * Once the queue is full, the oldest records not written yet are dropped.
+     */
+    @Override
+    public void println(int priority, String tag, String msg, Throwable tr) {
+        mQueue.offer(new Record(System.currentTimeMillis(), priority, tag, msg, tr));
+        if (mWriterIdle) {
+            LockSupport.unpark(mWriter);
+        }
+
+        if (mNext != null) {
+            mNext.println(priority, tag, msg, tr);
+        }
+    }
+
+    /**
+     * Writes what is still queued, flushes the file and stops the writer thread. Records
+     * logged afterwards are dropped.
+     */
+    public void close() {
+        mRunning = false;
+        LockSupport.unpark(mWriter);
+        try {
+            mWriter.join(CLOSE_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            mFile.close();
+        } catch (IOException e) {
+            // Nothing left to lose: the mapping stays valid until it is collected.
+        }
+    }
+
+    private void writeUntilClosed() {
+        while (mRunning) {
+            if (drain() == 0) {
+                mWriterIdle = true;
+                // A record queued while going idle is written on the next timeout at worst.
+                if (mRunning) {
+                    LockSupport.parkNanos(this, IDLE_NANOS);
+                }
+                mWriterIdle = false;
+            }
+        }
+        drain();
+        mBuffer.force();
+    }
+
+    private int drain() {
+        int count = mQueue.drainTo(mRecordSink);
+        if (count > 0) {
+            BinaryLogFormat.setDropped(mBuffer, mDroppedBefore + mQueue.getDropped());
+        }
+        return count;
+    }
+
+    private void write(Record record) {
+        mText.setLength(0);
+        if (record.mMessage != null) {
+            mText.append(record.mMessage);
+        }
+        if (record.mThrowable != null) {
+            StringWriter trace = new StringWriter();
+            record.mThrowable.printStackTrace(new PrintWriter(trace));
+            mText.append('\n').append(trace);
+        }
+        byte[] message = mText.toString().getBytes(BinaryLogFormat.UTF_8);
+        BinaryLogFormat.append(mBuffer, record.mTimeMillis, record.mPriority,
+                tagIndex(record.mTag), message, message.length);
+    }
+
+    private int tagIndex(String tag) {
+        if (tag == null) {
+            return BinaryLogFormat.NO_TAG;
+        }
+        Integer index = mTagIndices.get(tag);
+        if (index == null) {
+            index = BinaryLogFormat.addTag(mBuffer, tag);
+            if (index != BinaryLogFormat.NO_TAG) {
+                mTagIndices.put(tag, index);
+            }
+        }
+        return index;
+    }
+}
@@ -22,6 +22,12 @@ package com.example.android.common.logger;
  * an instance of it can function as a drop-in replacement for {@link android.util.Log}.
  * Most of the methods in this class server only to map a method call in Log to its equivalent
  * in LogNode.</p>
+ *
+ * <p>Messages below the level set with {@link #setLevel(int)} are dropped after a single
+ * branch. To keep a dropped message from being built at all, pass its values to a
+ * parameterized overload, whose "{}" placeholders are only filled in when the message is
+ * printed, hand over a {@link MessageSupplier}, or check {@link #isLoggable(int)} first.
+ * The profile build type strips VERBOSE and DEBUG calls entirely (see proguard-rules.pro).</p>
  */
 public class Log {
     // Grabbing the native values from Android's native logging facilities,
@@ -33,10 +39,36 @@ public class Log {
     public static final int WARN = android.util.Log.WARN;
     public static final int ERROR = android.util.Log.ERROR;
     public static final int ASSERT = android.util.Log.ASSERT;
+    // A level above every priority: nothing gets logged.
+    public static final int SILENT = ASSERT + 1;
+
+    private static final String PLACEHOLDER = "{}";
 
     // Stores the beginning of the LogNode topology.
     private static LogNode mLogNode;
 
+    // Messages below this priority are dropped.
+    private static int mLevel = VERBOSE;
+
+    /**
+     * Sets the lowest priority that gets logged, or {@link #SILENT} to log nothing.
+     */
+    public static void setLevel(int level) {
+        mLevel = level;
+    }
+
+    public static int getLevel() {
+        return mLevel;
+    }
+
+    /**
+     * Returns whether a message at this priority would reach a LogNode. Check it before
+     * building an expensive message by hand.
+     */
+    public static boolean isLoggable(int priority) {
+        return priority >= mLevel && mLogNode != null;
+    }
+
     /**
      * Returns the next LogNode in the linked list.
      */
@@ -62,7 +94,7 @@ public class Log {
      *           to extract and print useful information.
      */
     public static void println(int priority, String tag, String msg, Throwable tr) {
-        if (mLogNode != null) {
+        if (isLoggable(priority)) {
             mLogNode.println(priority, tag, msg, tr);
         }
     }
@@ -79,6 +111,91 @@ public class Log {
         println(priority, tag, msg, null);
     }
 
+    /**
+     * Prints the message of a supplier, which is only asked for it if the priority is logged.
+     *
+     * @param priority Log level of the data being logged. Verbose, Error, etc.
+     * @param tag Tag for for the log data. Can be used to organize log statements.
+     * @param supplier Builds the message to be logged.
+     */
+    public static void println(int priority, String tag, MessageSupplier supplier) {
+        if (isLoggable(priority)) {
+            mLogNode.println(priority, tag, supplier.get(), null);
+        }
+    }
+
+    /**
+     * Prints {@code format} with its first "{}" replaced by {@code arg}, formatting nothing
+     * if the priority is not logged. The same goes for the other parameterized overloads.
+     *
+     * @param priority Log level of the data being logged. Verbose, Error, etc.
+     * @param tag Tag for for the log data. Can be used to organize log statements.
+     * @param format The message to be logged, with a "{}" placeholder for each value.
+     * @param arg The value of the placeholder.
+     */
+    public static void println(int priority, String tag, String format, long arg) {
+        if (isLoggable(priority)) {
+            StringBuilder out = new StringBuilder(format.length() + 16);
+            int next = appendUntilPlaceholder(out, format, 0);
+            out.append(arg);
+            appendRest(out, format, next);
+            mLogNode.println(priority, tag, out.toString(), null);
+        }
+    }
+
+    public static void println(int priority, String tag, String format, double arg) {
+        if (isLoggable(priority)) {
+            StringBuilder out = new StringBuilder(format.length() + 16);
+            int next = appendUntilPlaceholder(out, format, 0);
+            out.append(arg);
+            appendRest(out, format, next);
+            mLogNode.println(priority, tag, out.toString(), null);
+        }
+    }
+
+    public static void println(int priority, String tag, String format, Object arg) {
+        if (isLoggable(priority)) {
+            StringBuilder out = new StringBuilder(format.length() + 16);
+            int next = appendUntilPlaceholder(out, format, 0);
+            out.append(arg);
+            appendRest(out, format, next);
+            mLogNode.println(priority, tag, out.toString(), null);
+        }
+    }
+
+    public static void println(int priority, String tag, String format, double arg1, double arg2) {
+        if (isLoggable(priority)) {
+            StringBuilder out = new StringBuilder(format.length() + 32);
+            int next = appendUntilPlaceholder(out, format, 0);
+            out.append(arg1);
+            next = appendUntilPlaceholder(out, format, next);
+            out.append(arg2);
+            appendRest(out, format, next);
+            mLogNode.println(priority, tag, out.toString(), null);
+        }
+    }
+
+    /**
+     * Appends {@code format} from {@code from} up to the next placeholder, or a separating
+     * space if there is none left, and returns where to carry on after it.
+     */
+    private static int appendUntilPlaceholder(StringBuilder out, String format, int from) {
+        int at = from < 0 ? -1 : format.indexOf(PLACEHOLDER, from);
+        if (at < 0) {
+            appendRest(out, format, from);
+            out.append(' ');
+            return -1;
+        }
+        out.append(format, from, at);
+        return at + PLACEHOLDER.length();
+    }
+
+    private static void appendRest(StringBuilder out, String format, int from) {
+        if (from >= 0) {
+            out.append(format, from, format.length());
+        }
+    }
+
    /**
      * Prints a message at VERBOSE priority.
      *
@@ -101,6 +218,40 @@ public class Log {
         v(tag, msg, null);
     }
 
+    /**
+     * Prints a message at VERBOSE priority, built by {@code supplier} only if it is logged.
+     *
+     * @param tag Tag for for the log data. Can be used to organize log statements.
+     * @param supplier Builds the message to be logged.
+     */
+    public static void v(String tag, MessageSupplier supplier) {
+        println(VERBOSE, tag, supplier);
+    }
+
+    /**
+     * Prints a message at VERBOSE priority, with its "{}" placeholders filled in only if it
+     * is logged.
+     *
+     * @param tag Tag for for the log data. Can be used to organize log statements.
+     * @param format The message to be logged, with a "{}" placeholder for each value.
+     * @param arg The value of the placeholder.
+     */
+    public static void v(String tag, String format, long arg) {
+        println(VERBOSE, tag, format, arg);
+    }
+
+    public static void v(String tag, String format, double arg) {
+        println(VERBOSE, tag, format, arg);
+    }
+
+    public static void v(String tag, String format, Object arg) {
+        println(VERBOSE, tag, format, arg);
+    }
+
+    public static void v(String tag, String format, double arg1, double arg2) {
+        println(VERBOSE, tag, format, arg1, arg2);
+    }
+
 
     /**
      * Prints a message at DEBUG priority.
@@ -124,6 +275,40 @@ public class Log {
         d(tag, msg, null);
     }
 
+    /**
+     * Prints a message at DEBUG priority, built by {@code supplier} only if it is logged.
+     *
+     * @param tag Tag for for the log data. Can be used to organize log statements.
+     * @param supplier Builds the message to be logged.
+     */
+    public static void d(String tag, MessageSupplier supplier) {
+        println(DEBUG, tag, supplier);
+    }
+
+    /**
+     * Prints a message at DEBUG priority, with its "{}" placeholders filled in only if it
+     * is logged.
+     *
+     * @param tag Tag for for the log data. Can be used to organize log statements.
+     * @param format The message to be logged, with a "{}" placeholder for each value.
+     * @param arg The value of the placeholder.
+     */
+    public static void d(String tag, String format, long arg) {
+        println(DEBUG, tag, format, arg);
+    }
+
+    public static void d(String tag, String format, double arg) {
+        println(DEBUG, tag, format, arg);
+    }
+
+    public static void d(String tag, String format, Object arg) {
+        println(DEBUG, tag, format, arg);
+    }
+
+    public static void d(String tag, String format, double arg1, double arg2) {
+        println(DEBUG, tag, format, arg1, arg2);
+    }
+
     /**
      * Prints a message at INFO priority.
      *
@@ -146,6 +331,40 @@ public class Log {
         i(tag, msg, null);
     }
 
+    /**
+     * Prints a message at INFO priority, built by {@code supplier} only if it is logged.
+     *
+     * @param tag Tag for for the log data. Can be used to organize log statements.
+     * @param supplier Builds the message to be logged.
+     */
+    public static void i(String tag, MessageSupplier supplier) {
+        println(INFO, tag, supplier);
+    }
+
+    /**
+     * Prints a message at INFO priority, with its "{}" placeholders filled in only if it
+     * is logged.
+     *
+     * @param tag Tag for for the log data. Can be used to organize log statements.
+     * @param format The message to be logged, with a "{}" placeholder for each value.
+     * @param arg The value of the placeholder.
+     */
+    public static void i(String tag, String format, long arg) {
+        println(INFO, tag, format, arg);
+    }
+
+    public static void i(String tag, String format, double arg) {
+        println(INFO, tag, format, arg);
+    }
+
+    public static void i(String tag, String format, Object arg) {
+        println(INFO, tag, format, arg);
+    }
+
+    public static void i(String tag, String format, double arg1, double arg2) {
+        println(INFO, tag, format, arg1, arg2);
+    }
+
     /**
      * Prints a message at WARN priority.
      *
@@ -34,8 +34,6 @@ package com.example.android.common.logger;
 import android.graphics.Typeface;
 import android.os.Bundle;
 import android.support.v4.app.Fragment;
-import android.text.Editable;
-import android.text.TextWatcher;
 import android.view.Gravity;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -50,6 +48,13 @@ public class LogFragment extends Fragment {
 
     private LogView mLogView;
     private ScrollView mScrollView;
+    // Runs after the layout of the lines just appended, so that it sees their height.
+    private final Runnable mScrollToBottom = new Runnable() {
+        @Override
+        public void run() {
+            mScrollView.fullScroll(ScrollView.FOCUS_DOWN);
+        }
+    };
 
     public LogFragment() {}
 
@@ -88,16 +93,12 @@ public class LogFragment extends Fragment {
 
         View result = inflateViews();
 
-        mLogView.addTextChangedListener(new TextWatcher() {
+        // Once per drained frame, not once per line.
+        mLogView.setOnLinesAppendedListener(new LogView.OnLinesAppendedListener() {
             @Override
-            public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
-
-            @Override
-            public void onTextChanged(CharSequence s, int start, int before, int count) {}
-
-            @Override
-            public void afterTextChanged(Editable s) {
-                mScrollView.fullScroll(ScrollView.FOCUS_DOWN);
+            public void onLinesAppended(LogView view) {
+                mScrollView.removeCallbacks(mScrollToBottom);
+                mScrollView.post(mScrollToBottom);
             }
         });
         return result;
@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.common.logger;
+
+/**
+ * The last lines of a log, in a fixed ring that a list can index directly: appending a line,
+ * dropping the oldest one to make room and looking a line up by position all cost O(1).
+ * Used from a single thread.
+ */
+public class LogHistory {
+
+    private final String[] mLines;
+    private int mFirst;
+    private int mSize;
+    // Lines ever appended; position 0 is line mAppended - mSize.
+    private long mAppended;
+
+    public LogHistory(int capacity) {
+        mLines = new String[Math.max(1, capacity)];
+    }
+
+    public int capacity() {
+        return mLines.length;
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * Appends a line, dropping the oldest one if the history is full.
+     */
+    public void add(String line) {
+        int slot = mFirst + mSize;
+        if (slot >= mLines.length) {
+            slot -= mLines.length;
+        }
+        mLines[slot] = line;
+        if (mSize < mLines.length) {
+            mSize++;
+        } else {
+            mFirst = mFirst + 1 == mLines.length ? 0 : mFirst + 1;
+        }
+        mAppended++;
+    }
+
+    /**
+     * Returns the line at {@code position}, 0 being the oldest line kept.
+     */
+    public String get(int position) {
+        int slot = mFirst + position;
+        return mLines[slot >= mLines.length ? slot - mLines.length : slot];
+    }
+
+    /**
+     * Returns a number that stays with the line at {@code position} as older lines are
+     * dropped, e.g. for stable list item ids.
+     */
+    public long getSequence(int position) {
+        return mAppended - mSize + position;
+    }
+
+    public void clear() {
+        for (int i = 0; i < mLines.length; i++) {
+            mLines[i] = null;
+        }
+        mFirst = 0;
+        mSize = 0;
+    }
+}
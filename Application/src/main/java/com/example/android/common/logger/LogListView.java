@@ -0,0 +1,207 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.common.logger;
+
+import android.content.Context;
+import android.graphics.Typeface;
+import android.util.AttributeSet;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.AbsListView;
+import android.widget.BaseAdapter;
+import android.widget.ListView;
+import android.widget.TextView;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * ListView which is used to output log data received through the LogNode interface, for logs
+ * too long for a {@link LogView}.
+ *
+ * <p>Every line is a recycled row over a {@link LogHistory}, so drawing, scrolling and
+ * appending only ever touch the rows on screen, however many lines are kept. As in LogView,
+ * lines can be logged from any thread: they are queued in a {@link LogRingBuffer} and moved
+ * into the history once per frame on the UI thread. The list follows new lines while it is
+ * scrolled to the bottom, and stays put otherwise.</p>
+ */
+public class LogListView extends ListView implements LogNode {
+
+    // Lines waiting for the next frame; older ones are dropped if a frame falls this far behind.
+    private static final int PENDING_LINES = 4096;
+    private static final int DEFAULT_HISTORY_LINES = 1 << 17;
+
+    private final LogRingBuffer<String> mPending = new LogRingBuffer<>(PENDING_LINES);
+    private final AtomicBoolean mDrainPosted = new AtomicBoolean();
+    private final Runnable mDrain = new Runnable() {
+        @Override
+        public void run() {
+            drain();
+        }
+    };
+    private final LogRingBuffer.LineSink<String> mHistorySink = new LogRingBuffer.LineSink<String>() {
+        @Override
+        public void onLine(String line) {
+            mHistory.add(line);
+        }
+    };
+    private final LineAdapter mAdapter = new LineAdapter();
+    private LogHistory mHistory = new LogHistory(DEFAULT_HISTORY_LINES);
+    private int mTextAppearance;
+    private int mLinePadding;
+
+    // The next LogNode in the chain.
+    private LogNode mNext;
+
+    public LogListView(Context context) {
+        super(context);
+        init();
+    }
+
+    public LogListView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        init();
+    }
+
+    public LogListView(Context context, AttributeSet attrs, int defStyle) {
+        super(context, attrs, defStyle);
+        init();
+    }
+
+    private void init() {
+        setAdapter(mAdapter);
+        setTranscriptMode(AbsListView.TRANSCRIPT_MODE_NORMAL);
+        setStackFromBottom(true);
+        setDivider(null);
+        setDividerHeight(0);
+    }
+
+    /**
+     * Sets how many lines are kept. Drops the lines logged so far.
+     */
+    public void setHistoryLines(int lines) {
+        mHistory = new LogHistory(lines);
+        mAdapter.notifyDataSetChanged();
+    }
+
+    /**
+     * Sets the text appearance of every line, as TextView.setTextAppearance would.
+     */
+    public void setTextAppearance(Context context, int resId) {
+        mTextAppearance = resId;
+        resetRows();
+    }
+
+    /**
+     * Sets the horizontal padding of every line, in pixels.
+     */
+    public void setLinePadding(int pixels) {
+        mLinePadding = pixels;
+        resetRows();
+    }
+
+    /** Styles are only applied to new rows: setting the adapter again drops the recycled ones. */
+    private void resetRows() {
+        setAdapter(mAdapter);
+    }
+
+    /**
+     * Formats the log data and queues it for the list.
+     * @param priority Log level of the data being logged.  Verbose, Error, etc.
+     * @param tag Tag for for the log data.  Can be used to organize log statements.
+     * @param msg The actual message to be logged. The actual message to be logged.
+     * @param tr If an exception was thrown, this can be sent along for the logging facilities
+     *           to extract and print useful information.
+     */
+    @Override
+    public void println(int priority, String tag, String msg, Throwable tr) {
+        // This may be called from any thread: the line is only queued here, and shown by the
+        // UI thread on its next frame.
+        appendToLog(LogView.formatLine(priority, tag, msg, tr));
+
+        if (mNext != null) {
+            mNext.println(priority, tag, msg, tr);
+        }
+    }
+
+    public LogNode getNext() {
+        return mNext;
+    }
+
+    public void setNext(LogNode node) {
+        mNext = node;
+    }
+
+    /** Outputs the string as a new line of log data, on the next frame. */
+    public void appendToLog(String s) {
+        mPending.offer(s);
+        if (mDrainPosted.compareAndSet(false, true)) {
+            postOnAnimation(mDrain);
+        }
+    }
+
+    /** Removes every line, shown or still pending. UI thread only. */
+    public void clearLog() {
+        mPending.clear();
+        mHistory.clear();
+        mAdapter.notifyDataSetChanged();
+    }
+
+    private void drain() {
+        // Cleared first, so that a line offered from now on posts another drain.
+        mDrainPosted.set(false);
+        if (mPending.drainTo(mHistorySink) > 0) {
+            mAdapter.notifyDataSetChanged();
+        }
+    }
+
+    private class LineAdapter extends BaseAdapter {
+
+        @Override
+        public int getCount() {
+            return mHistory.size();
+        }
+
+        @Override
+        public Object getItem(int position) {
+            return mHistory.get(position);
+        }
+
+        @Override
+        public long getItemId(int position) {
+            return mHistory.getSequence(position);
+        }
+
+        @Override
+        public boolean hasStableIds() {
+            return true;
+        }
+
+        @Override
+        public View getView(int position, View convertView, ViewGroup parent) {
+            TextView line = (TextView) convertView;
+            if (line == null) {
+                line = new TextView(getContext());
+                if (mTextAppearance != 0) {
+                    line.setTextAppearance(getContext(), mTextAppearance);
+                }
+                line.setTypeface(Typeface.MONOSPACE);
+                line.setPadding(mLinePadding, 0, mLinePadding, 0);
+            }
+            line.setText(mHistory.get(position));
+            return line;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.common.logger;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded, lock-free queue of log lines: any number of threads offer lines, and a single
+ * consumer (the UI thread, for a {@link LogView}) drains them in batches. Lines are usually
+ * Strings; {@link BinaryLogNode} queues whole records instead.
+ *
+ * <p>Producers claim a sequence number with one atomic increment, mark the slot it maps to as
+ * being written (the complement of the sequence number), store their line and then publish
+ * the sequence number in that slot. Nothing ever blocks: when the consumer falls more than
+ * the capacity behind, the oldest lines are overwritten, and the consumer skips and counts
+ * them as dropped. A line whose producer has claimed a slot but not published it yet stops
+ * the drain; it is picked up by the next one.</p>
+ */
+public class LogRingBuffer<T> {
+
+    /**
+     * Receives drained lines one by one.
+     */
+    public interface LineSink<T> {
+        public void onLine(T line);
+    }
+
+    private final int mMask;
+    private final AtomicReferenceArray<T> mLines;
+    private final AtomicLongArray mPublished;
+    private final AtomicLong mNextWrite = new AtomicLong();
+
+    // Consumer side only.
+    private long mNextRead;
+    private long mDropped;
+
+    /**
+     * @param capacity The number of lines kept until drained, rounded up to a power of two.
+     */
+    public LogRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        mMask = size - 1;
+        mLines = new AtomicReferenceArray<>(size);
+        mPublished = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            mPublished.set(i, -1);
+        }
+    }
+
+    public int capacity() {
+        return mMask + 1;
+    }
+
+    /**
+     * Adds a line, overwriting the oldest one if the buffer is full. Safe from any thread.
+     */
+    public void offer(T line) {
+        long sequence = mNextWrite.getAndIncrement();
+        int slot = (int) (sequence & mMask);
+        // Marked first, so a consumer reading the slot's previous line sees it change.
+        mPublished.set(slot, ~sequence);
+        mLines.set(slot, line);
+        mPublished.set(slot, sequence);
+    }
+
+    /**
+     * Appends every line published since the last drain to {@code out}, each one starting
+     * with a line break. Consumer thread only.
+     *
+     * @return The number of lines appended.
+     */
+    public int drainTo(StringBuilder out) {
+        return drain(out, null);
+    }
+
+    /**
+     * Hands every line published since the last drain to {@code sink}, oldest first.
+     * Consumer thread only.
+     *
+     * @return The number of lines handed over.
+     */
+    public int drainTo(LineSink<T> sink) {
+        return drain(null, sink);
+    }
+
+    private int drain(StringBuilder out, LineSink<T> sink) {
+        long end = mNextWrite.get();
+        if (end - mNextRead > capacity()) {
+            mDropped += end - capacity() - mNextRead;
+            mNextRead = end - capacity();
+        }
+        int count = 0;
+        while (mNextRead < end) {
+            int slot = (int) (mNextRead & mMask);
+            long published = mPublished.get(slot);
+            if (published < 0 ? ~published <= mNextRead : published < mNextRead) {
+                // Claimed but not written yet.
+                break;
+            }
+            T line = mLines.get(slot);
+            if (published != mNextRead || mPublished.get(slot) != published) {
+                // Overwritten, or being overwritten, by a producer a whole lap ahead.
+                mDropped++;
+            } else {
+                if (out != null) {
+                    out.append('\n').append(line);
+                } else {
+                    sink.onLine(line);
+                }
+                count++;
+            }
+            mNextRead++;
+        }
+        return count;
+    }
+
+    /**
+     * Forgets every line not drained yet. Consumer thread only.
+     */
+    public void clear() {
+        mNextRead = mNextWrite.get();
+    }
+
+    /**
+     * Returns how many lines were overwritten before they could be drained.
+     */
+    public long getDropped() {
+        return mDropped;
+    }
+}
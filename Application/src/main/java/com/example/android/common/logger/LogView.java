@@ -15,15 +15,45 @@
  */
 package com.example.android.common.logger;
 
-import android.app.Activity;
 import android.content.Context;
+import android.text.Editable;
 import android.util.*;
 import android.widget.TextView;
 
+import java.util.concurrent.atomic.AtomicBoolean;
+
 /** Simple TextView which is used to output log data received through the LogNode interface.
+ *
+ * <p>Lines can be logged from any thread. They go into a {@link LogRingBuffer}, which the view
+ * drains once per frame on the UI thread, in a single append; the oldest lines are trimmed so
+ * that no more than {@link #setMaxLogLines(int)} stay on screen.</p>
 */
 public class LogView extends TextView implements LogNode {
 
+    // Lines waiting for the next frame; older ones are dropped if a frame falls this far behind.
+    private static final int PENDING_LINES = 1024;
+    private static final int DEFAULT_MAX_LINES = 500;
+
+    /**
+     * Told on the UI thread after new lines were appended, once per frame at most.
+     */
+    public interface OnLinesAppendedListener {
+        public void onLinesAppended(LogView view);
+    }
+
+    private final LogRingBuffer<String> mPending = new LogRingBuffer<>(PENDING_LINES);
+    private final AtomicBoolean mDrainPosted = new AtomicBoolean();
+    private final StringBuilder mDrained = new StringBuilder();
+    private final Runnable mDrain = new Runnable() {
+        @Override
+        public void run() {
+            drain();
+        }
+    };
+    private int mMaxLines = DEFAULT_MAX_LINES;
+    private int mLineCount;
+    private OnLinesAppendedListener mOnLinesAppendedListener;
+
     public LogView(Context context) {
         super(context);
     }
@@ -36,6 +66,17 @@ public class LogView extends TextView implements LogNode {
         super(context, attrs, defStyle);
     }
 
+    /**
+     * Sets how many lines the view keeps; older lines are trimmed as new ones come in.
+     */
+    public void setMaxLogLines(int lines) {
+        mMaxLines = lines;
+    }
+
+    public void setOnLinesAppendedListener(OnLinesAppendedListener listener) {
+        mOnLinesAppendedListener = listener;
+    }
+
     /**
      * Formats the log data and prints it out to the LogView.
      * @param priority Log level of the data being logged.  Verbose, Error, etc.
@@ -46,8 +87,28 @@ public class LogView extends TextView implements LogNode {
      */
     @Override
     public void println(int priority, String tag, String msg, Throwable tr) {
+        // This may be called from an AsyncTask or some other off-UI thread: the line is only
+        // queued here, and shown by the UI thread on its next frame.
+        appendToLog(formatLine(priority, tag, msg, tr));
+
+        if (mNext != null) {
+            mNext.println(priority, tag, msg, tr);
+        }
+    }
+
+    public LogNode getNext() {
+        return mNext;
+    }
 
-        
+    public void setNext(LogNode node) {
+        mNext = node;
+    }
+
+    /**
+     * Concatenates the priority, tag, message and exception of a log call into one line of
+     * text, skipping what is missing. Shared by the on-screen log nodes.
+     */
+    static String formatLine(int priority, String tag, String msg, Throwable tr) {
         String priorityStr = null;
 
         // For the purposes of this View, we want to print the priority as readable text.
@@ -82,35 +143,14 @@ public class LogView extends TextView implements LogNode {
 
         // Take the priority, tag, message, and exception, and concatenate as necessary
         // into one usable line of text.
-        final StringBuilder outputBuilder = new StringBuilder();
+        StringBuilder outputBuilder = new StringBuilder();
 
         String delimiter = "\t";
         appendIfNotNull(outputBuilder, priorityStr, delimiter);
         appendIfNotNull(outputBuilder, tag, delimiter);
         appendIfNotNull(outputBuilder, msg, delimiter);
         appendIfNotNull(outputBuilder, exceptionStr, delimiter);
-
-        // In case this was originally called from an AsyncTask or some other off-UI thread,
-        // make sure the update occurs within the UI thread.
-        ((Activity) getContext()).runOnUiThread( (new Thread(new Runnable() {
-            @Override
-            public void run() {
-                // Display the text we just generated within the LogView.
-                appendToLog(outputBuilder.toString());
-            }
-        })));
-
-        if (mNext != null) {
-            mNext.println(priority, tag, msg, tr);
-        }
-    }
-
-    public LogNode getNext() {
-        return mNext;
-    }
-
-    public void setNext(LogNode node) {
-        mNext = node;
+        return outputBuilder.toString();
     }
 
     /** Takes a string and adds to it, with a separator, if the bit to be added isn't null. Since
@@ -122,7 +162,7 @@ public class LogView extends TextView implements LogNode {
      *                  for instance.
      * @return The fully concatenated String as a StringBuilder
      */
-    private StringBuilder appendIfNotNull(StringBuilder source, String addStr, String delimiter) {
+    private static StringBuilder appendIfNotNull(StringBuilder source, String addStr, String delimiter) {
         if (addStr != null) {
             if (addStr.length() == 0) {
                 delimiter = "";
@@ -136,9 +176,71 @@ public class LogView extends TextView implements LogNode {
     // The next LogNode in the chain.
     LogNode mNext;
 
-    /** Outputs the string as a new line of log data in the LogView. */
+    /** Outputs the string as a new line of log data in the LogView, on the next frame. */
     public void appendToLog(String s) {
-        append("\n" + s);
+        mPending.offer(s);
+        if (mDrainPosted.compareAndSet(false, true)) {
+            postOnAnimation(mDrain);
+        }
+    }
+
+    /** Removes every line, shown or still pending. UI thread only. */
+    public void clearLog() {
+        mPending.clear();
+        mLineCount = 0;
+        setText("");
+    }
+
+    /** Appends every pending line at once, then trims the oldest ones. */
+    private void drain() {
+        // Cleared first, so that a line offered from now on posts another drain.
+        mDrainPosted.set(false);
+        mDrained.setLength(0);
+        if (mPending.drainTo(mDrained) == 0) {
+            return;
+        }
+        append(mDrained);
+        // Text lines, not records: a record with a stack trace spans several.
+        mLineCount += countLineBreaks(mDrained);
+        if (mLineCount > mMaxLines) {
+            trim(mLineCount - mMaxLines);
+        }
+        if (mOnLinesAppendedListener != null) {
+            mOnLinesAppendedListener.onLinesAppended(this);
+        }
+    }
+
+    private static int countLineBreaks(CharSequence text) {
+        int breaks = 0;
+        for (int i = 0, length = text.length(); i < length; i++) {
+            if (text.charAt(i) == '\n') {
+                breaks++;
+            }
+        }
+        return breaks;
+    }
+
+    /** Deletes the first {@code lines} lines; every line starts with a line break. */
+    private void trim(int lines) {
+        Editable text = getEditableText();
+        if (text == null) {
+            return;
+        }
+        int end = 0;
+        int found = 0;
+        int length = text.length();
+        // Skips the break that starts the first line, then finds the one after the last.
+        for (int i = 1; i < length; i++) {
+            if (text.charAt(i) == '\n' && ++found == lines) {
+                end = i;
+                break;
+            }
+        }
+        if (found < lines) {
+            end = length;
+        }
+        text.delete(0, end);
+        mLineCount = found < lines ? 0 : mLineCount - lines;
     }
 
 
@@ -0,0 +1,54 @@
+package com.example.android.basicgesturedetect;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks {@link CascadeEngine} against the margin-based cascade it replaced.
+ */
+public class CascadeEngineTest
+{
+    private static final float ITEM = 200.0f;
+    private static final float CASCADE = 400.0f;
+
+    @Test
+    public void offsetsMatchTheMarginCascade()
+    {
+        CascadeEngine engine = new CascadeEngine();
+        engine.setup(10, ITEM, CASCADE);
+        float[] out = new float[10];
+        for(float camera = 100;camera < 1600;camera += 37)
+        {
+            engine.solve(camera, out);
+            float pivot = camera / ITEM + 1;
+            for(int i = 0;i < 10;i++)
+            {
+                float target = camera - ((pivot - i) / pivot) * CASCADE;
+                float margin = Math.max(0, target - i * ITEM) - camera + CASCADE;
+                assertEquals(margin, out[i], 1e-3f);
+            }
+        }
+    }
+
+    @Test
+    public void cameraStaysWithinTheCascade()
+    {
+        CascadeEngine engine = new CascadeEngine();
+        engine.setup(10, ITEM, CASCADE);
+        assertEquals(ITEM / 2, engine.clampCamera(-500), 0.0f);
+        assertEquals(10 * ITEM - CASCADE, engine.clampCamera(1e6f), 0.0f);
+        assertEquals(700.0f, engine.clampCamera(700), 0.0f);
+    }
+
+    @Test
+    public void setupOnlyReportsRealChanges()
+    {
+        CascadeEngine engine = new CascadeEngine();
+        assertTrue(engine.setup(10, ITEM, CASCADE));
+        assertFalse(engine.setup(10, ITEM, CASCADE));
+        assertTrue(engine.setup(11, ITEM, CASCADE));
+    }
+}
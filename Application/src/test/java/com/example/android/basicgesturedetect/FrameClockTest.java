@@ -0,0 +1,184 @@
+package com.example.android.basicgesturedetect;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Steps {@link WalletLayoutSolver.Animator}s through a {@link FrameClock} on the JVM.
+ */
+public class FrameClockTest
+{
+    private static final long FRAME = 16666667L;
+
+    private static class ManualScheduler implements FrameClock.Scheduler
+    {
+        long mTime;
+        int mRequests;
+
+        @Override
+        public long nanoTime()
+        {
+            return mTime;
+        }
+
+        @Override
+        public void requestFrame(FrameClock clock)
+        {
+            mRequests++;
+        }
+    }
+
+    private ManualScheduler mScheduler;
+    private FrameClock mClock;
+
+    @Before
+    public void setUp()
+    {
+        mScheduler = new ManualScheduler();
+        mClock = new FrameClock(mScheduler);
+    }
+
+    private void step()
+    {
+        mScheduler.mTime += FRAME;
+        mClock.doFrame(mScheduler.mTime);
+    }
+
+    @Test
+    public void animatorRunsForItsDuration()
+    {
+        final float[] last = {-1.0f};
+        final boolean[] finished = {false};
+        WalletLayoutSolver.Animator animator = new WalletLayoutSolver.Animator(mClock, 100){
+            @Override
+            public void onUpdate(float time)
+            {
+                last[0] = time;
+            }
+            @Override
+            public void onDestroy(boolean premature)
+            {
+                finished[0] = !premature;
+            }
+        };
+        animator.awake();
+        assertEquals(0.0f, last[0], 0.0f);
+        assertTrue(mClock.isRunning());
+        for(int i = 0;i < 3;i++)
+        {
+            step();
+        }
+        assertEquals(3 * FRAME / 1e6f / 100.0f, last[0], 1e-4f);
+        assertFalse(finished[0]);
+        for(int i = 0;i < 4;i++)
+        {
+            step();
+        }
+        assertEquals(1.0f, last[0], 0.0f);
+        assertTrue(finished[0]);
+        assertFalse(animator.mIsAwake);
+        assertFalse(mClock.isRunning());
+    }
+
+    @Test
+    public void animatorsShareOneFrameRequest()
+    {
+        WalletLayoutSolver.Animator a = new WalletLayoutSolver.Animator(mClock, 100);
+        WalletLayoutSolver.Animator b = new WalletLayoutSolver.Animator(mClock, 200);
+        a.awake();
+        b.awake();
+        assertEquals(1, mScheduler.mRequests);
+        step();
+        assertEquals(2, mScheduler.mRequests);
+        a.destroy();
+        b.destroy();
+        step();
+        assertEquals(2, mScheduler.mRequests);
+    }
+
+    @Test
+    public void callbacksMayUnregisterWhileTicking()
+    {
+        final int[] ticks = new int[2];
+        final FrameClock.Callback second = new FrameClock.Callback()
+        {
+            @Override
+            public void onFrame(long frameTimeNanos)
+            {
+                ticks[1]++;
+            }
+        };
+        FrameClock.Callback first = new FrameClock.Callback()
+        {
+            @Override
+            public void onFrame(long frameTimeNanos)
+            {
+                ticks[0]++;
+                mClock.remove(this);
+            }
+        };
+        mClock.add(first);
+        mClock.add(second);
+        step();
+        step();
+        assertEquals(1, ticks[0]);
+        assertEquals(2, ticks[1]);
+    }
+
+    @Test
+    public void callbacksMayRegisterManyMoreWhileTicking()
+    {
+        final int[] ticks = new int[3];
+        final FrameClock.Callback added = new FrameClock.Callback()
+        {
+            @Override
+            public void onFrame(long frameTimeNanos)
+            {
+                ticks[2]++;
+            }
+        };
+        FrameClock.Callback first = new FrameClock.Callback()
+        {
+            @Override
+            public void onFrame(long frameTimeNanos)
+            {
+                ticks[0]++;
+                mClock.remove(this);
+                // More than the clock starts with, so its arrays grow mid-frame.
+                for(int i = 0;i < 40;i++)
+                {
+                    mClock.add(new FrameClock.Callback()
+                    {
+                        @Override
+                        public void onFrame(long frameTimeNanos)
+                        {
+                            mClock.remove(this);
+                            mClock.add(added);
+                        }
+                    });
+                }
+            }
+        };
+        FrameClock.Callback second = new FrameClock.Callback()
+        {
+            @Override
+            public void onFrame(long frameTimeNanos)
+            {
+                ticks[1]++;
+            }
+        };
+        mClock.add(first);
+        mClock.add(second);
+        step();
+        assertEquals(1, ticks[0]);
+        assertEquals(1, ticks[1]);
+        step();
+        step();
+        assertEquals(3, ticks[1]);
+        assertEquals(1, ticks[2]);
+    }
+}
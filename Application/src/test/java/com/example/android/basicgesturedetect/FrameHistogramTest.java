@@ -0,0 +1,27 @@
+package com.example.android.basicgesturedetect;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks the bucketing of {@link FrameHistogram}.
+ */
+public class FrameHistogramTest
+{
+    @Test
+    public void histogramPercentilesBoundTheirBucket()
+    {
+        FrameHistogram histogram = new FrameHistogram();
+        for(int i = 0;i < 99;i++)
+        {
+            histogram.record(3000); // 3us, bucket [2, 4)
+        }
+        histogram.record(40000000); // 40ms
+        assertEquals(100, histogram.getCount());
+        assertEquals(4000, histogram.getPercentileNanos(0.5f));
+        assertEquals(4000, histogram.getPercentileNanos(0.99f));
+        assertEquals(40000000, histogram.getPercentileNanos(1.0f));
+        assertEquals(40000000, histogram.getMaxNanos());
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.android.basicgesturedetect;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the per-transition and solver-wide statistics of {@link FrameStats}.
+ */
+public class FrameStatsTest
+{
+    private static final long FRAME = 16666667L;
+
+    private static class ManualScheduler implements FrameClock.Scheduler
+    {
+        long mTime;
+
+        @Override
+        public long nanoTime()
+        {
+            return mTime;
+        }
+
+        @Override
+        public void requestFrame(FrameClock clock)
+        {
+        }
+    }
+
+    private final ManualScheduler mScheduler = new ManualScheduler();
+    private final FrameClock mClock = new FrameClock(mScheduler);
+
+    private void step()
+    {
+        mScheduler.mTime += FRAME;
+        mClock.doFrame(mScheduler.mTime);
+    }
+
+    @Test
+    public void statsCountFramesAndLateFramesOfARun()
+    {
+        FrameStats stats = new FrameStats();
+        final FrameStats.Transition[] reported = {null};
+        stats.setListener(new FrameStats.Listener()
+        {
+            @Override
+            public void onTransitionFinished(FrameStats.Transition transition)
+            {
+                reported[0] = transition;
+            }
+        });
+        WalletLayoutSolver.Animator animator = new WalletLayoutSolver.Animator(mClock, 100);
+        animator.setStats(stats.newTransition("Test"));
+        animator.awake();
+        step();
+        mScheduler.mTime += FRAME; // a dropped frame
+        step();
+        for(int i = 0;i < 4;i++)
+        {
+            step();
+        }
+        FrameStats.Transition transition = reported[0];
+        assertEquals("Test", transition.getName());
+        assertEquals(1, transition.getRuns());
+        assertFalse(transition.isRunInterrupted());
+        assertEquals(6, transition.getRunFrames());
+        assertEquals(1, transition.getRunLateFrames());
+        assertEquals(5, transition.getFrameInterval().getCount());
+    }
+
+    @Test
+    public void layoutCostOnlyCountsFramesThatRanPasses()
+    {
+        FrameStats stats = new FrameStats();
+        stats.onPreDraw();
+        assertEquals(0, stats.getLayoutCost().getCount());
+        stats.recordLayoutPass(3000000);
+        stats.recordLayoutPass(1000000);
+        stats.onPreDraw();
+        stats.onPreDraw();
+        assertEquals(1, stats.getLayoutCost().getCount());
+        assertEquals(4000000, stats.getLayoutCost().getMaxNanos());
+    }
+
+    @Test
+    public void touchLatencyRunsToTheNextFrameDrawn()
+    {
+        FrameStats stats = new FrameStats();
+        stats.onTouchApplied(1000000);
+        stats.onTouchApplied(9000000);
+        assertFalse(stats.onDraw(17000000));
+        assertEquals(2, stats.getTouchLatency().getCount());
+        assertEquals(16000000, stats.getTouchLatency().getMaxNanos());
+        // The gesture is reported with the first frame after it ended.
+        stats.onTouchApplied(20000000);
+        stats.onGestureEnd();
+        assertTrue(stats.onDraw(33000000));
+        assertEquals(3, stats.getTouchLatency().getCount());
+        // A tap that moved nothing is not reported.
+        stats.onGestureEnd();
+        assertFalse(stats.onDraw(50000000));
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.android.basicgesturedetect;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks {@link HeightTree} against plain sums over its heights.
+ */
+public class HeightTreeTest
+{
+    private static final float REFERENCE = 500.0f;
+    private static final float EPSILON = 1e-2f;
+
+    private static void assertPrefixes(HeightTree tree, float[] heights)
+    {
+        float sum = 0;
+        for(int i = 0;i < tree.size();i++)
+        {
+            assertEquals(heights[i], tree.get(i), EPSILON);
+            assertEquals(sum, tree.prefix(i), EPSILON);
+            sum += heights[i];
+        }
+        assertEquals(sum, tree.prefix(tree.size()), EPSILON);
+    }
+
+    @Test
+    public void prefixesFollowEveryKindOfUpdate()
+    {
+        Random random = new Random(3);
+        HeightTree tree = new HeightTree();
+        tree.setReference(REFERENCE);
+        tree.resize(37);
+        float[] heights = new float[64];
+        for(int i = 0;i < heights.length;i++)
+        {
+            heights[i] = REFERENCE;
+        }
+        for(int i = 0;i < 37;i += 3)
+        {
+            heights[i] = 100 + random.nextInt(800);
+            tree.set(i, heights[i]);
+        }
+        assertPrefixes(tree, heights);
+        for(int i = 37;i < 64;i++)
+        {
+            tree.add();
+        }
+        tree.set(50, 120);
+        heights[50] = 120;
+        assertPrefixes(tree, heights);
+        tree.move(3, 20);
+        float moved = heights[3];
+        System.arraycopy(heights, 4, heights, 3, 17);
+        heights[20] = moved;
+        assertPrefixes(tree, heights);
+    }
+
+    @Test
+    public void referenceChangesKeepOwnHeights()
+    {
+        HeightTree tree = new HeightTree();
+        tree.setReference(REFERENCE);
+        tree.resize(4);
+        tree.set(1, 200);
+        tree.setReference(600);
+        assertEquals(600, tree.get(0), 0.0f);
+        assertEquals(200, tree.get(1), 0.0f);
+        assertEquals(1400, tree.prefix(3), EPSILON);
+    }
+
+    @Test
+    public void indexAtFindsTheCardSpanningAnOffset()
+    {
+        HeightTree tree = new HeightTree();
+        tree.setReference(REFERENCE);
+        tree.resize(5);
+        tree.set(1, 100);
+        // Cards span [0, 500), [500, 600), [600, 1100), [1100, 1600), [1600, 2100).
+        assertEquals(0, tree.indexAt(-50));
+        assertEquals(0, tree.indexAt(499));
+        assertEquals(1, tree.indexAt(500));
+        assertEquals(1, tree.indexAt(599));
+        assertEquals(2, tree.indexAt(600));
+        assertEquals(4, tree.indexAt(5000));
+    }
+
+    @Test
+    public void cameraMaxShowsTheBottomOfTheLastCard()
+    {
+        HeightTree tree = new HeightTree();
+        tree.setReference(REFERENCE);
+        tree.resize(20);
+        // Uniform heights: 19 slivers, then the whole last card.
+        assertEquals(WalletLayoutEngine.STACK_RATIO * 19 * REFERENCE + REFERENCE - 1000,
+                WalletLayoutEngine.cameraMax(tree, 1000), EPSILON);
+        tree.set(19, 900);
+        float lastTop = WalletLayoutEngine.STACK_RATIO * 19 * REFERENCE;
+        assertEquals(lastTop + 900 - 1000, WalletLayoutEngine.cameraMax(tree, 1000), EPSILON);
+    }
+}
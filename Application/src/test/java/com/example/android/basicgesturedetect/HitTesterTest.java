@@ -0,0 +1,80 @@
+package com.example.android.basicgesturedetect;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks {@link HitTester} against a linear scan of the drawing order.
+ */
+public class HitTesterTest
+{
+    private static final float ITEM = 500.0f;
+
+    private static int scan(float[] positions, int count, float y)
+    {
+        for(int i = count - 1;i >= 0;i--)
+        {
+            if(positions[i] <= y && y < positions[i] + ITEM)
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Test
+    public void findsTheTopmostCardOfTheListLayout()
+    {
+        float[] positions = {0, 0, 0, 100, 200, 300};
+        HitTester tester = new HitTester();
+        tester.build(positions, positions.length, ITEM);
+        assertEquals(2, tester.find(50));
+        assertEquals(5, tester.find(350));
+        assertEquals(5, tester.find(799));
+        assertEquals(-1, tester.find(800));
+        assertEquals(-1, tester.find(-1));
+    }
+
+    @Test
+    public void matchesTheDrawingOrderForUnsortedPositions()
+    {
+        Random random = new Random(7);
+        HitTester tester = new HitTester();
+        for(int round = 0;round < 20;round++)
+        {
+            int count = 1 + random.nextInt(200);
+            float[] positions = new float[count];
+            for(int i = 0;i < count;i++)
+            {
+                positions[i] = random.nextFloat() * 5000 - 1000;
+            }
+            tester.build(positions, count, ITEM);
+            for(int probe = 0;probe < 100;probe++)
+            {
+                float y = random.nextFloat() * 7000 - 1500;
+                assertEquals(scan(positions, count, y), tester.find(y));
+            }
+        }
+    }
+
+    @Test
+    public void skipsCardsTooShortToReachThePoint()
+    {
+        float[] positions = {0, 100, 200};
+        HeightTree heights = new HeightTree();
+        heights.setReference(ITEM);
+        heights.resize(3);
+        heights.set(2, 50);
+        heights.set(1, 150);
+        HitTester tester = new HitTester();
+        tester.build(positions, heights, positions.length, ITEM);
+        // Card 2 spans [200, 250) and card 1 [100, 250): card 0 shows below both.
+        assertEquals(2, tester.find(220));
+        assertEquals(0, tester.find(260));
+        assertEquals(1, tester.find(150));
+        assertEquals(-1, tester.find(500));
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.android.basicgesturedetect;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class PositionStoreTest
+{
+    private static PositionStore of(float... values)
+    {
+        PositionStore store = new PositionStore(2);
+        for(float v : values)
+        {
+            store.add(v);
+        }
+        return store;
+    }
+
+    private static float[] toArray(PositionStore store)
+    {
+        float[] out = new float[store.size()];
+        System.arraycopy(store.array(), 0, out, 0, out.length);
+        return out;
+    }
+
+    @Test
+    public void moveShiftsTheEntriesInBetween()
+    {
+        PositionStore store = of(0, 1, 2, 3, 4);
+        store.move(1, 3);
+        assertArrayEquals(new float[]{0, 2, 3, 1, 4}, toArray(store), 0.0f);
+        store.move(3, 0);
+        assertArrayEquals(new float[]{1, 0, 2, 3, 4}, toArray(store), 0.0f);
+    }
+
+    @Test
+    public void moveRangeKeepsTheBlockInOrder()
+    {
+        PositionStore store = of(0, 1, 2, 3, 4, 5);
+        store.moveRange(0, 3, 2);
+        assertArrayEquals(new float[]{2, 3, 4, 0, 1, 5}, toArray(store), 0.0f);
+        store.moveRange(3, 1, 3);
+        assertArrayEquals(new float[]{2, 0, 1, 5, 3, 4}, toArray(store), 0.0f);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void moveOutOfRangeThrows()
+    {
+        of(0, 1).move(0, 2);
+    }
+
+    @Test
+    public void resizeFillsNewEntries()
+    {
+        PositionStore store = of(0, 10, 20);
+        store.resize(4, 7);
+        assertEquals(7.0f, store.get(3), 0.0f);
+    }
+
+    @Test
+    public void fillRangeLeavesTheOtherEntries()
+    {
+        PositionStore store = of(0, 1, 2, 3, 4);
+        store.fill(1, 3, 9);
+        assertArrayEquals(new float[]{0, 9, 9, 3, 4}, toArray(store), 0.0f);
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.android.basicgesturedetect;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the closed-form steps of {@link Spring}.
+ */
+public class SpringTest
+{
+    private static final float FREQUENCY = 9.0f;
+
+    /** Steps a value from 1000 toward 0 for {@code seconds}, at {@code hz} frames per second. */
+    private static float[] run(float hz, float seconds)
+    {
+        Spring spring = new Spring(FREQUENCY);
+        spring.setTimeStep(1.0f / hz);
+        float x = 1000.0f;
+        float v = 0.0f;
+        int frames = Math.round(seconds * hz);
+        for(int i = 0;i < frames;i++)
+        {
+            float nx = spring.position(x, v, 0.0f);
+            v = spring.velocity(x, v, 0.0f);
+            x = nx;
+        }
+        return new float[]{x, v};
+    }
+
+    @Test
+    public void motionDoesNotDependOnTheFrameRate()
+    {
+        float[] at60 = run(60, 0.5f);
+        float[] at120 = run(120, 0.5f);
+        float[] at90 = run(90, 0.5f);
+        assertEquals(at60[0], at120[0], 0.05f);
+        assertEquals(at60[0], at90[0], 0.05f);
+        assertEquals(at60[1], at120[1], 0.5f);
+    }
+
+    @Test
+    public void criticalDampingNeverOvershoots()
+    {
+        Spring spring = new Spring(FREQUENCY);
+        spring.setTimeStep(1.0f / 60);
+        float[] x = {1000.0f};
+        float[] v = {0.0f};
+        float[] targets = {0.0f};
+        boolean rest = false;
+        int frames = 0;
+        while(!rest)
+        {
+            rest = spring.step(x, v, targets, 0, 1);
+            assertTrue(x[0] >= 0.0f);
+            frames++;
+        }
+        assertEquals(0.0f, x[0], 0.0f);
+        assertEquals(0.0f, v[0], 0.0f);
+        assertTrue(frames < 90);
+    }
+
+    @Test
+    public void velocityCarriesOverWhenTheTargetChanges()
+    {
+        Spring spring = new Spring(FREQUENCY);
+        spring.setTimeStep(1.0f / 60);
+        float[] x = {0.0f};
+        float[] v = {-2000.0f};
+        float[] targets = {100.0f};
+        assertFalse(spring.step(x, v, targets, 0, 1));
+        // Still moving away from the new target on the first frame.
+        assertTrue(x[0] < 0.0f);
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.android.basicgesturedetect;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks the extrapolation and the deceleration cut-off of {@link TouchPredictor}.
+ */
+public class TouchPredictorTest
+{
+    private static final long MS = 1000000L;
+
+    /** Adds a sample every 4ms for 48ms, at {@code velocity} px/ms plus {@code accel} px/ms^2. */
+    private static TouchPredictor drag(float velocity, float accel, long horizon)
+    {
+        TouchPredictor predictor = new TouchPredictor(horizon);
+        for(int t = 0;t <= 48;t += 4)
+        {
+            predictor.add(t * MS, 100.0f + velocity * t + 0.5f * accel * t * t);
+        }
+        return predictor;
+    }
+
+    @Test
+    public void extrapolatesASteadyDragToTheFrameTime()
+    {
+        TouchPredictor predictor = drag(2.0f, 0.0f, 16 * MS);
+        assertEquals(196.0f, predictor.latest(), 0.0f);
+        assertEquals(196.0f + 2.0f * 10, predictor.predict(58 * MS), 1e-2f);
+    }
+
+    @Test
+    public void neverReachesPastTheHorizon()
+    {
+        TouchPredictor predictor = drag(-2.0f, 0.0f, 8 * MS);
+        assertEquals(4.0f - 2.0f * 8, predictor.predict(100 * MS), 1e-2f);
+        predictor.setHorizon(0);
+        assertEquals(4.0f, predictor.predict(100 * MS), 0.0f);
+    }
+
+    @Test
+    public void stopsPredictingWhenTheFingerSlowsDown()
+    {
+        TouchPredictor predictor = drag(2.0f, -0.02f, 16 * MS);
+        assertEquals(predictor.latest(), predictor.predict(58 * MS), 0.0f);
+    }
+
+    @Test
+    public void needsAFewSamplesFirst()
+    {
+        TouchPredictor predictor = new TouchPredictor(16 * MS);
+        predictor.add(0, 100.0f);
+        predictor.add(4 * MS, 110.0f);
+        assertEquals(110.0f, predictor.predict(20 * MS), 0.0f);
+        predictor.reset();
+        assertEquals(0.0f, predictor.predict(20 * MS), 0.0f);
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.android.basicgesturedetect;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Regression tests for the View-free layout math.
+ */
+public class WalletLayoutEngineTest
+{
+    private static final float ITEM = 500.0f;
+    private static final float VIEWPORT = 1000.0f;
+    private static final float EPSILON = 1e-3f;
+
+    private static HeightTree uniform(int count)
+    {
+        HeightTree heights = new HeightTree();
+        heights.setReference(ITEM);
+        heights.resize(count);
+        return heights;
+    }
+
+    @Test
+    public void cameraMaxLeavesTheLastCardFullyVisible()
+    {
+        // The bottom of the last card (top at 19 slivers of 100px) meets the viewport bottom.
+        assertEquals(19 * 100 + ITEM - VIEWPORT,
+                WalletLayoutEngine.cameraMax(uniform(20), VIEWPORT), EPSILON);
+        assertEquals(0.0f, WalletLayoutEngine.cameraMax(uniform(3), VIEWPORT), 0.0f);
+    }
+
+    @Test
+    public void overscrollSqueezesAndStretchesTheStack()
+    {
+        HeightTree heights = uniform(20);
+        float stacked = WalletLayoutEngine.stackHeight(ITEM);
+        assertEquals(stacked, WalletLayoutEngine.stackStretch(0, heights, VIEWPORT), 0.0f);
+        assertEquals(stacked + 5.0f, WalletLayoutEngine.stackStretch(-100, heights, VIEWPORT), EPSILON);
+        float max = WalletLayoutEngine.cameraMax(heights, VIEWPORT);
+        assertEquals(stacked - 5.0f, WalletLayoutEngine.stackStretch(max + 100, heights, VIEWPORT), EPSILON);
+        assertEquals(1.0f, WalletLayoutEngine.stackStretch(max + 1e6f, heights, VIEWPORT), 0.0f);
+    }
+
+    @Test
+    public void edgeScrollGrowsWithDepthIntoEitherBand()
+    {
+        assertEquals(0.0f, WalletLayoutEngine.edgeScrollVelocity(500, VIEWPORT, 100, 2000), 0.0f);
+        assertEquals(0.0f, WalletLayoutEngine.edgeScrollVelocity(100, VIEWPORT, 100, 2000), 0.0f);
+        assertEquals(-1000.0f, WalletLayoutEngine.edgeScrollVelocity(50, VIEWPORT, 100, 2000), EPSILON);
+        assertEquals(1000.0f, WalletLayoutEngine.edgeScrollVelocity(950, VIEWPORT, 100, 2000), EPSILON);
+        // Past the edges, e.g. a finger dragged off the stack, scrolls at full speed.
+        assertEquals(-2000.0f, WalletLayoutEngine.edgeScrollVelocity(-300, VIEWPORT, 100, 2000), 0.0f);
+        assertEquals(2000.0f, WalletLayoutEngine.edgeScrollVelocity(1300, VIEWPORT, 100, 2000), 0.0f);
+    }
+
+    @Test
+    public void listLayoutPilesCardsAboveTheCamera()
+    {
+        float[] out = new float[20];
+        WalletLayoutEngine.solve(WalletLayoutEngine.State.List, 250, 100, uniform(20), VIEWPORT, 20,
+                -1, out);
+        assertEquals(250, out[0], 0.0f);
+        assertEquals(250, out[2], 0.0f);
+        assertEquals(300, out[3], 0.0f);
+        assertEquals(1900, out[19], 0.0f);
+    }
+
+    @Test
+    public void listLayoutShowsTheSameShareOfEveryCard()
+    {
+        HeightTree heights = uniform(20);
+        heights.set(4, 2 * ITEM);
+        heights.set(5, ITEM / 2);
+        float[] out = new float[20];
+        WalletLayoutEngine.solve(WalletLayoutEngine.State.List, 250, 100, heights, VIEWPORT, 20,
+                -1, out);
+        // A fifth of every card above shows: 4 * 100, then 200 for the double card.
+        assertEquals(400, out[4], 0.0f);
+        assertEquals(600, out[5], 0.0f);
+        assertEquals(650, out[6], 0.0f);
+        for(int i = 0;i < 20;i++)
+        {
+            assertEquals(WalletLayoutEngine.listPosition(heights, i, 250, 100), out[i], EPSILON);
+        }
+    }
+
+    @Test
+    public void listRangeSpansFromThePileTopToTheViewportBottom()
+    {
+        HeightTree heights = uniform(20);
+        // Cards 0 to 2 pile at the camera, card 12 is the last one starting above the bottom.
+        assertEquals(2, WalletLayoutEngine.listPileTop(heights, 250, 100));
+        assertEquals(13, WalletLayoutEngine.listVisibleEnd(heights, 250, 100, VIEWPORT));
+        assertEquals(20, WalletLayoutEngine.listVisibleEnd(heights, 1e6f, 100, VIEWPORT));
+    }
+
+    @Test
+    public void listRangeSolveMatchesTheFullSolve()
+    {
+        HeightTree heights = uniform(20);
+        heights.set(4, 2 * ITEM);
+        float[] full = new float[20];
+        WalletLayoutEngine.solve(WalletLayoutEngine.State.List, 250, 100, heights, VIEWPORT, 20,
+                -1, full);
+        float[] range = new float[20];
+        WalletLayoutEngine.solve(WalletLayoutEngine.State.List, 250, 100, heights, VIEWPORT, 5, 9,
+                -1, range);
+        for(int i = 0;i < 20;i++)
+        {
+            assertEquals(i >= 5 && i < 9 ? full[i] : 0.0f, range[i], EPSILON);
+        }
+    }
+
+    @Test
+    public void singleLayoutPushesOtherCardsOffScreen()
+    {
+        float[] out = new float[5];
+        WalletLayoutEngine.solve(WalletLayoutEngine.State.Single, 300, 100, uniform(5), VIEWPORT, 5,
+                2, out);
+        assertEquals(300 - 2 * VIEWPORT - 200, out[0], 0.0f);
+        assertEquals(300, out[2], 0.0f);
+        assertEquals(300 + 2 * VIEWPORT + 200, out[4], 0.0f);
+    }
+
+    @Test
+    public void visibilityKeepsOnlyTheTopOfAPileAndOnScreenCards()
+    {
+        float[] positions = {0, 0, 0, 100, 600, 1200};
+        boolean[] out = new boolean[positions.length];
+        int visible = WalletLayoutEngine.computeVisibility(positions, positions.length, 0, ITEM, VIEWPORT, out);
+        assertEquals(3, visible);
+        assertFalse(out[0]);
+        assertFalse(out[1]);
+        assertTrue(out[2]);
+        assertTrue(out[3]);
+        assertTrue(out[4]);
+        assertFalse(out[5]);
+    }
+
+    @Test
+    public void visibilityCullsCardsBuriedUnderTheCardsAboveThem()
+    {
+        // Card 0 sits inside the span covered by cards 1 and 2 together.
+        float[] positions = {100, 0, 300};
+        boolean[] out = new boolean[positions.length];
+        assertEquals(2, WalletLayoutEngine.computeVisibility(positions, positions.length, 0, ITEM,
+                VIEWPORT, out));
+        assertFalse(out[0]);
+        assertTrue(out[1]);
+        assertTrue(out[2]);
+        // Translucent or reordered cards are only culled against the viewport.
+        assertEquals(3, WalletLayoutEngine.computeVisibility(positions, positions.length, 0, ITEM,
+                VIEWPORT, false, out));
+        assertTrue(out[0]);
+    }
+
+    @Test
+    public void visibilityOfARangeLeavesTheOtherFlags()
+    {
+        float[] positions = {0, 0, 0, 100, 600, 1200};
+        boolean[] out = {true, true, false, false, false, true};
+        assertEquals(2, WalletLayoutEngine.computeVisibility(positions, null, 2, 4, 0, ITEM,
+                VIEWPORT, true, out));
+        assertTrue(out[0]);
+        assertTrue(out[1]);
+        assertTrue(out[2]);
+        assertTrue(out[3]);
+        assertFalse(out[4]);
+        assertTrue(out[5]);
+    }
+}
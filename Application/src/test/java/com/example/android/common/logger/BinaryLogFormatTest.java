@@ -0,0 +1,182 @@
+package com.example.android.common.logger;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the ring of {@link BinaryLogFormat} and a round trip through {@link BinaryLogNode}.
+ */
+public class BinaryLogFormatTest
+{
+    private static final int DATA_SIZE = BinaryLogFormat.MIN_DATA_SIZE;
+
+    private static List<String> readAll(ByteBuffer buffer)
+    {
+        final List<String> lines = new ArrayList<>();
+        BinaryLogFormat.read(buffer, new BinaryLogFormat.RecordVisitor()
+        {
+            @Override
+            public void onRecord(long timeMillis, int priority, String tag, String message)
+            {
+                lines.add(timeMillis + " " + priority + " " + tag + " " + message);
+            }
+        });
+        return lines;
+    }
+
+    private static ByteBuffer newRing()
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(BinaryLogFormat.fileSize(DATA_SIZE));
+        BinaryLogFormat.init(buffer, DATA_SIZE);
+        return buffer;
+    }
+
+    private static void append(ByteBuffer buffer, long time, int tag, String message)
+    {
+        byte[] bytes = message.getBytes(BinaryLogFormat.UTF_8);
+        BinaryLogFormat.append(buffer, time, Log.INFO, tag, bytes, bytes.length);
+    }
+
+    @Test
+    public void readsRecordsBackWithTheirTags()
+    {
+        ByteBuffer buffer = newRing();
+        assertTrue(BinaryLogFormat.isValid(buffer));
+        int tag = BinaryLogFormat.addTag(buffer, "Solver");
+        append(buffer, 1, tag, "first");
+        append(buffer, 2, BinaryLogFormat.NO_TAG, "second \u00e9");
+        List<String> lines = readAll(buffer);
+        assertEquals(2, lines.size());
+        assertEquals("1 " + Log.INFO + " Solver first", lines.get(0));
+        assertEquals("2 " + Log.INFO + " null second \u00e9", lines.get(1));
+    }
+
+    @Test
+    public void wrappingEvictsTheOldestRecords()
+    {
+        ByteBuffer buffer = newRing();
+        for(int i = 0;i < 1000;i++)
+        {
+            append(buffer, i, BinaryLogFormat.NO_TAG, "message number " + i);
+            List<String> lines = readAll(buffer);
+            assertEquals(BinaryLogFormat.getRecordCount(buffer), lines.size());
+            // Oldest first, without gaps, ending with the one just appended.
+            for(int j = 0;j < lines.size();j++)
+            {
+                int expected = i - lines.size() + 1 + j;
+                assertEquals(expected + " " + Log.INFO + " null message number " + expected,
+                        lines.get(j));
+            }
+        }
+        assertTrue(BinaryLogFormat.getRecordCount(buffer) > 20);
+    }
+
+    @Test
+    public void headerOnlyCoversIntactRecordsWhileAppending() throws Exception
+    {
+        File file = File.createTempFile("log", ".bin");
+        RandomAccessFile io = new RandomAccessFile(file, "rw");
+        try
+        {
+            ByteBuffer buffer = io.getChannel().map(FileChannel.MapMode.READ_WRITE, 0,
+                    BinaryLogFormat.fileSize(DATA_SIZE));
+            BinaryLogFormat.init(buffer, DATA_SIZE);
+            int i = 0;
+            for(;i < 100;i++)
+            {
+                append(buffer, i, BinaryLogFormat.NO_TAG, "message number " + i);
+            }
+            int before = BinaryLogFormat.getRecordCount(buffer);
+            byte[] bytes = "a much longer message, evicting a few records".getBytes(
+                    BinaryLogFormat.UTF_8);
+            int start = BinaryLogFormat.reserve(buffer, 15 + bytes.length);
+            // A writer killed halfway through the record leaves garbage in the evicted space.
+            for(int j = 0;j < bytes.length;j++)
+            {
+                buffer.put(BinaryLogFormat.fileSize(start) - DATA_SIZE + j, (byte) 0x7f);
+            }
+            List<String> lines = readAll(buffer);
+            assertTrue(lines.size() < before);
+            assertEquals(BinaryLogFormat.getRecordCount(buffer), lines.size());
+            for(int j = 0;j < lines.size();j++)
+            {
+                int expected = i - lines.size() + j;
+                assertEquals(expected + " " + Log.INFO + " null message number " + expected,
+                        lines.get(j));
+            }
+
+            BinaryLogFormat.commit(buffer, start, i, Log.INFO, BinaryLogFormat.NO_TAG, bytes,
+                    bytes.length);
+            lines = readAll(buffer);
+            assertEquals(BinaryLogFormat.getRecordCount(buffer), lines.size());
+            assertEquals(i + " " + Log.INFO + " null a much longer message, evicting a few records",
+                    lines.get(lines.size() - 1));
+        }
+        finally
+        {
+            io.close();
+            file.delete();
+        }
+    }
+
+    @Test
+    public void longMessagesAreCutOnACharacter()
+    {
+        ByteBuffer buffer = newRing();
+        StringBuilder message = new StringBuilder();
+        for(int i = 0;i < DATA_SIZE;i++)
+        {
+            message.append('\u00e9');
+        }
+        append(buffer, 0, BinaryLogFormat.NO_TAG, message.toString());
+        String line = readAll(buffer).get(0);
+        int max = BinaryLogFormat.maxMessageBytes(DATA_SIZE);
+        assertEquals(message.substring(0, max / 2), line.substring(line.lastIndexOf(' ') + 1));
+    }
+
+    @Test
+    public void nodeWritesTheFileInTheBackground() throws Exception
+    {
+        File file = File.createTempFile("log", ".bin");
+        try
+        {
+            for(int run = 0;run < 2;run++)
+            {
+                BinaryLogNode node = new BinaryLogNode(file, DATA_SIZE);
+                node.println(Log.DEBUG, "Tag", "run " + run, null);
+                node.println(Log.ERROR, null, null, new IllegalStateException("boom"));
+                node.close();
+            }
+            RandomAccessFile in = new RandomAccessFile(file, "r");
+            try
+            {
+                ByteBuffer buffer = in.getChannel().map(FileChannel.MapMode.READ_ONLY, 0,
+                        in.length());
+                List<String> lines = readAll(buffer);
+                // The second run appends to the ring of the first one.
+                assertEquals(4, lines.size());
+                assertTrue(lines.get(0).endsWith(Log.DEBUG + " Tag run 0"));
+                assertTrue(lines.get(1).contains("IllegalStateException: boom"));
+                assertTrue(lines.get(2).endsWith(Log.DEBUG + " Tag run 1"));
+                assertEquals(1, BinaryLogFormat.readTags(buffer).length);
+            }
+            finally
+            {
+                in.close();
+            }
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+}
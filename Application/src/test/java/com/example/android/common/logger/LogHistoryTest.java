@@ -0,0 +1,42 @@
+package com.example.android.common.logger;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks positions and sequence numbers of {@link LogHistory} as it wraps around.
+ */
+public class LogHistoryTest
+{
+    @Test
+    public void keepsTheLastLinesInOrder()
+    {
+        LogHistory history = new LogHistory(3);
+        for(int i = 0;i < 5;i++)
+        {
+            history.add(Integer.toString(i));
+        }
+        assertEquals(3, history.size());
+        assertEquals("2", history.get(0));
+        assertEquals("4", history.get(2));
+    }
+
+    @Test
+    public void sequencesStayWithTheirLines()
+    {
+        LogHistory history = new LogHistory(3);
+        history.add("a");
+        history.add("b");
+        assertEquals(1, history.getSequence(1));
+        history.add("c");
+        history.add("d");
+        // "b" moved up to position 0 and kept its number.
+        assertEquals("b", history.get(0));
+        assertEquals(1, history.getSequence(0));
+        history.clear();
+        assertEquals(0, history.size());
+        history.add("e");
+        assertEquals(4, history.getSequence(0));
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.android.common.logger;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Checks batching, overflow and concurrent producers of {@link LogRingBuffer}.
+ */
+public class LogRingBufferTest
+{
+    @Test
+    public void drainsEveryLineOnceInOrder()
+    {
+        LogRingBuffer<String> buffer = new LogRingBuffer<>(8);
+        buffer.offer("a");
+        buffer.offer("b");
+        StringBuilder out = new StringBuilder();
+        assertEquals(2, buffer.drainTo(out));
+        assertEquals("\na\nb", out.toString());
+        assertEquals(0, buffer.drainTo(out));
+    }
+
+    @Test
+    public void overflowDropsTheOldestLines()
+    {
+        LogRingBuffer<String> buffer = new LogRingBuffer<>(4);
+        for(int i = 0;i < 10;i++)
+        {
+            buffer.offer(Integer.toString(i));
+        }
+        StringBuilder out = new StringBuilder();
+        assertEquals(4, buffer.drainTo(out));
+        assertEquals("\n6\n7\n8\n9", out.toString());
+        assertEquals(6, buffer.getDropped());
+    }
+
+    @Test
+    public void concurrentProducersLoseNothingWithinCapacity() throws InterruptedException
+    {
+        final int threads = 4;
+        final int lines = 1000;
+        final LogRingBuffer<String> buffer = new LogRingBuffer<>(threads * lines);
+        Thread[] producers = new Thread[threads];
+        for(int t = 0;t < threads;t++)
+        {
+            producers[t] = new Thread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    for(int i = 0;i < lines;i++)
+                    {
+                        buffer.offer("x");
+                    }
+                }
+            });
+            producers[t].start();
+        }
+        for(Thread producer : producers)
+        {
+            producer.join();
+        }
+        assertEquals(threads * lines, buffer.drainTo(new StringBuilder()));
+        assertEquals(0, buffer.getDropped());
+    }
+
+    @Test
+    public void lappedLinesAreDroppedNotDeliveredTwice() throws InterruptedException
+    {
+        final int threads = 4;
+        final int lines = 200000;
+        final LogRingBuffer<Integer> buffer = new LogRingBuffer<>(8);
+        Thread[] producers = new Thread[threads];
+        for(int t = 0;t < threads;t++)
+        {
+            final int base = t * lines;
+            producers[t] = new Thread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    for(int i = 0;i < lines;i++)
+                    {
+                        buffer.offer(base + i);
+                    }
+                }
+            });
+            producers[t].start();
+        }
+        final boolean[] seen = new boolean[threads * lines];
+        final int[] delivered = {0};
+        LogRingBuffer.LineSink<Integer> sink = new LogRingBuffer.LineSink<Integer>()
+        {
+            @Override
+            public void onLine(Integer line)
+            {
+                assertFalse("delivered twice: " + line, seen[line]);
+                seen[line] = true;
+                delivered[0]++;
+            }
+        };
+        boolean running = true;
+        while(running)
+        {
+            running = false;
+            for(Thread producer : producers)
+            {
+                running |= producer.isAlive();
+            }
+            buffer.drainTo(sink);
+        }
+        buffer.drainTo(sink);
+        assertEquals(threads * lines, delivered[0] + buffer.getDropped());
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.android.basicgesturedetect.benchmark;
+
+import com.example.android.basicgesturedetect.CMath;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CMath easing applied to every card of a stack, as an animator frame would.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EasingBenchmark
+{
+    @Param({"15", "1000", "100000", "1000000"})
+    public int count;
+
+    private float[] mFrom;
+    private float[] mTo;
+    private float[] mOut;
+
+    @Setup
+    public void setup()
+    {
+        mFrom = new float[count];
+        mTo = new float[count];
+        mOut = new float[count];
+        for(int i = 0;i < count;i++)
+        {
+            mFrom[i] = i * 10.0f;
+            mTo[i] = i * 12.0f;
+        }
+    }
+
+    private float alpha(int i)
+    {
+        return (i & 1023) / 1023.0f;
+    }
+
+    @Benchmark
+    public float[] lerp()
+    {
+        for(int i = 0;i < count;i++)
+        {
+            mOut[i] = CMath.lerp(mFrom[i], mTo[i], alpha(i));
+        }
+        return mOut;
+    }
+
+    @Benchmark
+    public float[] easeOutBack()
+    {
+        for(int i = 0;i < count;i++)
+        {
+            mOut[i] = CMath.easeOutBack(mFrom[i], mTo[i], alpha(i));
+        }
+        return mOut;
+    }
+
+    @Benchmark
+    public float[] easeInOutBack()
+    {
+        for(int i = 0;i < count;i++)
+        {
+            mOut[i] = CMath.easeInOutBack(mFrom[i], mTo[i], alpha(i));
+        }
+        return mOut;
+    }
+}
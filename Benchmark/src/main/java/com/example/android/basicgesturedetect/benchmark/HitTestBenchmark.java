@@ -0,0 +1,69 @@
+package com.example.android.basicgesturedetect.benchmark;
+
+import com.example.android.basicgesturedetect.HeightTree;
+import com.example.android.basicgesturedetect.HitTester;
+import com.example.android.basicgesturedetect.WalletLayoutEngine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Touch to card index: rebuilding the hit-test index after the cards moved, and a lookup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HitTestBenchmark
+{
+    private static final float ITEM_HEIGHT = 632.0f;
+    private static final float VIEWPORT = 1920.0f;
+
+    @Param({"15", "1000", "100000", "1000000"})
+    public int count;
+
+    private float[] mPositions;
+    private HeightTree mHeights;
+    private HitTester mHitTester;
+    private float mProbe;
+
+    @Setup
+    public void setup()
+    {
+        mHeights = LayoutBenchmark.heights(count);
+        float camera = WalletLayoutEngine.cameraMax(mHeights, VIEWPORT) * 0.5f;
+        mPositions = WalletLayoutEngine.solve(WalletLayoutEngine.State.List, camera,
+                WalletLayoutEngine.stackHeight(ITEM_HEIGHT), mHeights, VIEWPORT, count, 0,
+                new float[count]);
+        mHitTester = new HitTester();
+        mHitTester.build(mPositions, mHeights, count, ITEM_HEIGHT);
+        mProbe = camera + VIEWPORT * 0.5f;
+    }
+
+    /** The lazy rebuild the first touch after an animation frame pays. */
+    @Benchmark
+    public HitTester build()
+    {
+        mHitTester.build(mPositions, mHeights, count, ITEM_HEIGHT);
+        return mHitTester;
+    }
+
+    @Benchmark
+    public int find()
+    {
+        return mHitTester.find(mProbe);
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.android.basicgesturedetect.benchmark;
+
+import com.example.android.basicgesturedetect.HeightTree;
+import com.example.android.basicgesturedetect.WalletLayoutEngine;
+import com.example.android.basicgesturedetect.WalletLayoutEngine.State;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-frame layout paths of WalletLayoutSolver, for every solver state and stack size. Every
+ * third card is taller than the reference card, as the solver handles cards of varying heights.
+ */
+@org.openjdk.jmh.annotations.State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LayoutBenchmark
+{
+    private static final float ITEM_HEIGHT = 632.0f;
+    private static final float VIEWPORT = 1920.0f;
+
+    @Param({"15", "1000", "100000", "1000000"})
+    public int count;
+
+    @Param({"Intro", "List", "ListToSingle", "Single", "SingleToList", "Edit"})
+    public String state;
+
+    private State mState;
+    private HeightTree mHeights;
+    private float mCamera;
+    private float mStackedHeight;
+    private int mFocused;
+    private float[] mPositions;
+    private int[] mMargins;
+    private boolean[] mVisible;
+
+    @Setup
+    public void setup()
+    {
+        mState = State.valueOf(state);
+        mHeights = heights(count);
+        mStackedHeight = mState == State.Intro ? ITEM_HEIGHT : WalletLayoutEngine.stackHeight(ITEM_HEIGHT);
+        // Park the camera in the middle of the stack so both piled and spread cards are solved.
+        mCamera = WalletLayoutEngine.cameraMax(mHeights, VIEWPORT) * 0.5f;
+        mFocused = count / 2;
+        mPositions = new float[count];
+        mMargins = new int[count];
+        mVisible = new boolean[count];
+        WalletLayoutEngine.solve(mState, mCamera, mStackedHeight, mHeights, VIEWPORT, count,
+                mFocused, mPositions);
+    }
+
+    static HeightTree heights(int count)
+    {
+        HeightTree heights = new HeightTree();
+        heights.setReference(ITEM_HEIGHT);
+        heights.resize(count);
+        for(int i = 0;i < count;i += 3)
+        {
+            heights.set(i, ITEM_HEIGHT * 1.5f);
+        }
+        return heights;
+    }
+
+    /** recalculateItemPosition / reanimateItemPosition / listToSingle targets. */
+    @Benchmark
+    public float[] solve()
+    {
+        return WalletLayoutEngine.solve(mState, mCamera, mStackedHeight, mHeights, VIEWPORT, count,
+                mFocused, mPositions);
+    }
+
+    /** The margin computation updateStack performs for every card on every frame. */
+    @Benchmark
+    public int[] margins()
+    {
+        float camera = mState == State.List
+                ? WalletLayoutEngine.cameraClamped(mCamera, mHeights, VIEWPORT)
+                : mCamera;
+        for(int i = 0;i < count;i++)
+        {
+            mMargins[i] = (int) (mPositions[i] - camera);
+        }
+        return mMargins;
+    }
+
+    /** calculateStackStretch, run once per scroll event and camera bounce frame. */
+    @Benchmark
+    public float stackStretch()
+    {
+        return WalletLayoutEngine.stackStretch(mCamera, mHeights, VIEWPORT);
+    }
+
+    /** The viewport and occlusion culling updateStack runs before touching any card. */
+    @Benchmark
+    public int visibility()
+    {
+        return WalletLayoutEngine.computeVisibility(mPositions, mHeights, count, mCamera, ITEM_HEIGHT,
+                VIEWPORT, mState != State.Edit, mVisible);
+    }
+}
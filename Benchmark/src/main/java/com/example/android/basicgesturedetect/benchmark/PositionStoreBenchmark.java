@@ -0,0 +1,84 @@
+package com.example.android.basicgesturedetect.benchmark;
+
+import com.example.android.basicgesturedetect.PositionStore;
+import com.example.android.basicgesturedetect.Spring;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Animator frame and drag-reorder step on the card position store.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PositionStoreBenchmark
+{
+    @Param({"15", "1000", "100000", "1000000"})
+    public int count;
+
+    private PositionStore mPositions;
+    private PositionStore mVelocities;
+    private PositionStore mTargets;
+    private PositionStore mOrigins;
+    private Spring mSpring;
+    private int mCursor;
+
+    @Setup
+    public void setup()
+    {
+        mPositions = new PositionStore(count);
+        mVelocities = new PositionStore(count);
+        mTargets = new PositionStore(count);
+        mOrigins = new PositionStore(count);
+        for(int i = 0;i < count;i++)
+        {
+            mPositions.add(i * 100.0f);
+            mVelocities.add(0.0f);
+            mTargets.add(i * 120.0f);
+            mOrigins.add(i * 100.0f);
+        }
+        // The solver's transition spring, at 60Hz.
+        mSpring = new Spring(9.0f);
+        mSpring.setTimeStep(1.0f / 60);
+        mCursor = count / 2;
+    }
+
+    /** One transition frame springing every card toward its target, as springItemPositions. */
+    @Benchmark
+    public PositionStore springFrame()
+    {
+        if(mSpring.step(mPositions.array(), mVelocities.array(), mTargets.array(), 0, count))
+        {
+            // Everything came to rest: head back, so the frames keep moving cards.
+            PositionStore targets = mTargets;
+            mTargets = mOrigins;
+            mOrigins = targets;
+        }
+        return mPositions;
+    }
+
+    /** One recalculateEditIndex step: the dragged card crosses a single neighbour. */
+    @Benchmark
+    public PositionStore reorderStep()
+    {
+        int next = mCursor + 1 < count ? mCursor + 1 : 0;
+        mPositions.move(mCursor, next);
+        mCursor = next;
+        return mPositions;
+    }
+}